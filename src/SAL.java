@@ -52,6 +52,12 @@ public class SAL
 		System.out.println("   Measure: %app% measure SRC_NET MEASURE [TOP_PERCENT]");
 		System.out.println("   Summarize: %app% summarize SRC_NET");
 		System.out.println();
+		System.out.println("  Prefixes (in this order): @ = debug mode, + = compact (CSR) graphs for simulate/measure/analyze,");
+		System.out.println("                            ++ = compact graphs stored off-heap (read-only)");
+		System.out.println("                            +++ = compact graphs with compressed neighbor lists (read-only)");
+		System.out.println("                            *[N] = parallel ns09/blb/grh propagation steps on N threads (default: all)");
+		System.out.println("     e.g.: %app% @+simulate epinions 10000 \"test\" ns09 1 top 100");
+		System.out.println();
 		System.exit(0);
 	}
 
@@ -69,6 +75,30 @@ public class SAL
 			Deanon.DEBUG = true;
 			args[0] = args[0].substring(1);
 		}
+		if(args[0].charAt(0) == '+')
+		{
+			Deanon.COMPACT = true;
+			args[0] = args[0].substring(1);
+		}
+		if(args[0].charAt(0) == '+')
+		{
+			Deanon.OFFHEAP = true;
+			args[0] = args[0].substring(1);
+		}
+		if(args[0].charAt(0) == '+')
+		{
+			Deanon.COMPRESSED = true;
+			args[0] = args[0].substring(1);
+		}
+		if(args[0].charAt(0) == '*')
+		{
+			// Optional thread count (all processors by default)
+			int k = 1;
+			while(k < args[0].length() && Character.isDigit(args[0].charAt(k)))
+				k++;
+			Deanon.THREADS = k > 1 ? Integer.parseInt(args[0].substring(1, k)) : Runtime.getRuntime().availableProcessors();
+			args[0] = args[0].substring(k);
+		}
 		
 		if(args.length > 0 && args[0].equals("create_data"))
 			Deanon.createTestData(args);
@@ -33,7 +33,9 @@ import deanon.Deanon;
 
 import mygraph.MyBaseGraph;
 import mygraph.MyEdge;
+import mygraph.MyInducedGraph;
 import mygraph.MyShortestPaths;
+import mygraph.MyVertexIndex;
 
 // Betweenneess and closeness centrality (together) 
 public class libBCC
@@ -67,13 +69,16 @@ public class libBCC
 	{
 		HashMap<Integer, BCCDouble> dict = new HashMap<Integer, BCCDouble>();
 
-		MyBaseGraph g2 = g.selfcopy();
+		// Paths are searched within the selected vertices (a view, g is not copied)
+		MyBaseGraph g2 = g;
 		if(vertexSet != null)
-		{
-			List<Integer> vs2del = new ArrayList<Integer>(g2.vertexSet());
-			vs2del.removeAll(vertexSet);
-			g2.removeAllVertices(vs2del);
-		}
+			g2 = new MyInducedGraph(g, vertexSet);
+		
+		// Per-vertex sums (by dense index), converted to a dictionary at the end
+		MyVertexIndex vix = g2.vertexIndex();
+		double[] bwcs = new double[vix.size()];
+		double[] clcs = new double[vix.size()];
+		boolean[] seen = new boolean[vix.size()];
 		
 		long begin;
 		double avg_time = 0.0;
@@ -109,13 +114,9 @@ public class libBCC
 				
 				// Closeness (for v <-> v2)
 				int distance = ((ArrayList<Integer>) paths2.get(0)).size();
-				if(!dict.containsKey(v))
-					dict.put(v, new BCCDouble(0.0, (double)distance));
-				else
-				{
-					BCCDouble bwd = dict.get(v);
-					dict.put(v, new BCCDouble(bwd.bwc, bwd.clc + distance));
-				}
+				int vi = vix.indexOf(v);
+				seen[vi] = true;
+				clcs[vi] += distance;
 				
 				// Betweenness calculation
 				for(int i = 0; i < paths2.size(); i++)
@@ -142,13 +143,9 @@ public class libBCC
 					Double score = scores.get(tv);
 					score = score / paths2.size();
 					
-					if(!dict.containsKey(tv))
-						dict.put(tv, new BCCDouble(score, 0.0));
-					else
-					{
-						BCCDouble bwd = dict.get(tv);
-						dict.put(tv, new BCCDouble(bwd.bwc + score, bwd.clc));
-					}
+					int tvi = vix.indexOf(tv);
+					seen[tvi] = true;
+					bwcs[tvi] += score;
 				}
 			}
 
@@ -182,12 +179,9 @@ public class libBCC
 		}
 		
 		// Set CLC values
-		for(Integer v : dict.keySet())
-		{
-			BCCDouble bwd = dict.get(v);
-			bwd.clc = 1 / bwd.clc;
-			dict.put(v, bwd);
-		}
+		for(int i = 0; i < vix.size(); i++)
+			if(seen[i])
+				dict.put(vix.idOf(i), new BCCDouble(bwcs[i], 1 / clcs[i]));
 
 		return dict;
 	}
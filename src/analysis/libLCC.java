@@ -32,7 +32,10 @@ import ui.DebugFrame;
 import deanon.Deanon;
 
 import mygraph.MyBaseGraph;
+import mygraph.MyDirectedBaseGraph;
 import mygraph.MyEdge;
+import mygraph.MyIntSlice;
+import mygraph.MyIntersection;
 import mygraph.MyShortestPaths;
 
 // Local Clustering Coefficient 
@@ -45,14 +48,19 @@ public class libLCC
 		
 		long ctr = 0, ectr = 0;
 		
-		List<Integer> nbrs = new ArrayList<Integer>(g.neighborsOf(v));
-		for(Integer v1 : nbrs)
-			for(Integer v2 : nbrs)
-			{
-				if(g.containsEdge(v1, v2))
-					ectr++;
-				ctr++;
-			}
+		// Edges among the neighbors = sum of |N(v1) & N(v)| over the neighbors v1
+		// (directed: only the edges leaving v1 count, as with containsEdge(v1, v2))
+		MyIntSlice nbrs = g.neighborsAt(g.vertexIndex().indexOf(v), new MyIntSlice());
+		MyIntSlice nbrs1 = new MyIntSlice();
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			if(g instanceof MyDirectedBaseGraph)
+				((MyDirectedBaseGraph)g).outNeighborsAt(nbrs.array[k], nbrs1);
+			else
+				g.neighborsAt(nbrs.array[k], nbrs1);
+			ectr += MyIntersection.count(nbrs, nbrs1);
+		}
+		ctr = (long)nbrs.size() * nbrs.size();
 		lcc = (double)ectr / (double)ctr;
 		
 		return lcc;
@@ -63,14 +71,6 @@ public class libLCC
 	{
 		HashMap<Integer, Double> dict = new HashMap<Integer, Double>();
 
-		MyBaseGraph g2 = g.selfcopy();
-		if(vertexSet != null)
-		{
-			List<Integer> vs2del = new ArrayList<Integer>(g2.vertexSet());
-			vs2del.removeAll(vertexSet);
-			g2.removeAllVertices(vs2del);
-		}
-		
 		long start = System.nanoTime() / 1000000, begin;
 		double avg_time = 0.0;
 		DebugFrame f = null;
@@ -83,7 +83,7 @@ public class libLCC
 		System.out.print("\t  LCC: [");
 		int progress = 0, ticks = 0;
 		if(vertexSet == null)
-			vertexSet = new ArrayList<Integer>(g2.vertexSet());
+			vertexSet = new ArrayList<Integer>(g.vertexSet());
 		int all_ticks = vertexSet.size();
 		
 		for(Integer v : vertexSet)
@@ -19,6 +19,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +30,9 @@ import deanon.Deanon;
 import deanon.libNS09;
 import mygraph.MyBaseGraph;
 import mygraph.MyGraph;
+import mygraph.MyIntList;
+import mygraph.MyIntSlice;
+import mygraph.MyIntersection;
 import mygraph.MyMath;
 
 public class libLTA
@@ -54,28 +58,62 @@ public class libLTA
 		return cossim;
 	}
 	
+	// Cosine similarity between two sorted neighbor slices
+	public static double cosSim(MyIntSlice nbrs1, MyIntSlice nbrs2)
+	{
+		return MyIntersection.count(nbrs1, nbrs2) / Math.sqrt(nbrs1.size() * nbrs2.size());
+	}
+	
+	// Dense indexes of the neighbors of neighbors of ix (sorted, without ix itself)
+	//   - exclude_nbrs: also drop the direct neighbors (for LTA_D)
+	private static MyIntList neighborsOfNeighbors(MyBaseGraph g, int ix, boolean exclude_nbrs, MyIntList out)
+	{
+		MyIntSlice nbrs = g.neighborsAt(ix, new MyIntSlice());
+		MyIntSlice nbrs2 = new MyIntSlice();
+		
+		out.clear();
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			g.neighborsAt(nbrs.array[k], nbrs2);
+			for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				out.add(nbrs2.array[k2]);
+		}
+		Arrays.sort(out.items, 0, out.size);
+		
+		// Dedupe in place, and drop the excluded ones
+		int n = 0;
+		for(int k = 0; k < out.size; k++)
+		{
+			int u = out.items[k];
+			if(n > 0 && out.items[n-1] == u)
+				continue;
+			if(u == ix || (exclude_nbrs && nbrs.contains(u)))
+				continue;
+			out.items[n++] = u;
+		}
+		out.size = n;
+		
+		return out;
+	}
+	
 	// Calculate different LTA values
 	public static double[] calculateLTAOf(MyBaseGraph g, Integer v)
 	{
 		double[] lta = new double[NUM_LTA_VARS];
 		
 		// Get all neighbors of neighbors
-		HashSet<Integer> nbrs_of_nbrs = new HashSet<Integer>();
-		List<Integer> nbrs = new ArrayList(g.neighborsOf(v));
-		for(Integer v1 : nbrs)
-		{
-			List<Integer> nbrs2 = new ArrayList(g.neighborsOf(v1));
-			nbrs_of_nbrs.addAll(nbrs2);
-		}
-		nbrs_of_nbrs.remove(v);
+		int ix = g.vertexIndex().indexOf(v);
+		MyIntSlice nbrs = g.neighborsAt(ix, new MyIntSlice());
+		MyIntList nbrs_of_nbrs = neighborsOfNeighbors(g, ix, false, new MyIntList());
 		
 		// Calculate sum of similarity
 		double sum_cossim = 0.0;
 		List<Double> deg_diffs = new ArrayList<Double>();
 		int nbrs_size = nbrs.size();
-		for(Integer v1 : nbrs_of_nbrs)
+		MyIntSlice nbrs1 = new MyIntSlice();
+		for(int k = 0; k < nbrs_of_nbrs.size; k++)
 		{
-			List<Integer> nbrs1 = new ArrayList(g.neighborsOf(v1));
+			g.neighborsAt(nbrs_of_nbrs.items[k], nbrs1);
 			
 			sum_cossim += cosSim(nbrs, nbrs1);
 			deg_diffs.add((double) Math.abs(nbrs_size-nbrs1.size()));
@@ -89,7 +127,7 @@ public class libLTA
 			deg_sd = 1.0;
 		
 		// Finally, calculate LTAs
-		lta[LTA_A] = sum_cossim / nbrs_of_nbrs.size();
+		lta[LTA_A] = sum_cossim / nbrs_of_nbrs.size;
 		lta[LTA_B] = sum_cossim / Math.max(nbrs_size, 2);
 		lta[LTA_C] = lta[LTA_A] / deg_sd;
 		
@@ -175,6 +213,8 @@ public class libLTA
 		int num_vs = g.vertexSet().size();
 		List<Integer> vs = new ArrayList<Integer>(g.vertexSet());
 		Collections.sort(vs);
+		MyIntSlice nbrs = new MyIntSlice(), nbrs1 = new MyIntSlice();
+		MyIntList nbrs_of_nbrs = new MyIntList();
 		
 		for(Integer v : vs)
 		{
@@ -183,28 +223,19 @@ public class libLTA
 			
 			double lta = 0.0;
 			
-			// Get all neighbors of neighbors
-			HashSet<Integer> nbrs_of_nbrs = new HashSet<Integer>();
-			List<Integer> nbrs = new ArrayList(g.neighborsOf(v));
-			for(Integer v1 : nbrs)
-			{
-				List<Integer> nbrs2 = new ArrayList(g.neighborsOf(v1));
-				nbrs_of_nbrs.addAll(nbrs2);
-			}
-			nbrs_of_nbrs.remove(v);
-			for(int nbr : nbrs)
-				if(nbrs_of_nbrs.contains(nbr))
-					nbrs_of_nbrs.remove(nbr);
+			// Get all neighbors of neighbors (that are not neighbors)
+			int ix = g.vertexIndex().indexOf(v);
+			g.neighborsAt(ix, nbrs);
+			neighborsOfNeighbors(g, ix, true, nbrs_of_nbrs);
 			
 			// Calculate sum of similarity
 			double sum_cossim = 0.0;
-			int nbrs_size = nbrs.size();
-			for(Integer v1 : nbrs_of_nbrs)
+			for(int k = 0; k < nbrs_of_nbrs.size; k++)
 			{
-				List<Integer> nbrs1 = new ArrayList(g.neighborsOf(v1));
+				g.neighborsAt(nbrs_of_nbrs.items[k], nbrs1);
 				sum_cossim += cosSim(nbrs, nbrs1);
 			}
-			lta = sum_cossim / nbrs_of_nbrs.size();
+			lta = sum_cossim / nbrs_of_nbrs.size;
 			
 			ltadict.put(v, lta);
 			
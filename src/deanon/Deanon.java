@@ -26,7 +26,6 @@ import deanon.structures.GroundTruth;
 import deanon.structures.Matches;
 import deanon.structures.PerturbData;
 import deanon.structures.PropagationData;
-import deanon.structures.tuples.DegIx;
 import analysis.libBCC;
 import analysis.libDEG;
 import analysis.libLCC;
@@ -36,6 +35,11 @@ import mygraph.*;
 public class Deanon
 {
 	public static boolean DEBUG = false;
+	public static boolean COMPACT = false; // load graphs into the compact (CSR) representation
+	public static boolean OFFHEAP = false; // keep the rows of compact graphs outside of the heap
+	public static boolean COMPRESSED = false; // gap encode the rows of (undirected) compact graphs
+	public static boolean GZIP = true; // store the perturbed src/tar graphs gzipped (.tgf.gz)
+	public static int THREADS = 1; // threads of the ns09/blb/grh propagation steps (parallel steps if > 1)
 	
 	public static String identifier;
 	public static String outdir;
@@ -161,7 +165,9 @@ public class Deanon
 			vs.addAll(gt.mappings.keySet());
 
 			// Mappings that should not even exist:
-			List<Integer> outofgt = new ArrayList<Integer>(matches.forward.keySet());
+			List<Integer> outofgt = new ArrayList<Integer>();
+			for(int v : matches.sources())
+				outofgt.add(v);
 			outofgt.removeAll(vs);
 
 			int ctr = 0;
@@ -220,7 +226,7 @@ public class Deanon
     		dos = new DataOutputStream(fos);
     		// Log extended matches
 			dos.writeInt(matches.size());
-			for(Integer v : matches.forward.keySet())
+			for(int v : matches.sources())
 			{
 				dos.writeInt(v);
 				dos.writeInt(matches.get(v));
@@ -230,6 +236,54 @@ public class Deanon
         catch (Exception e) { e.printStackTrace(); }
 	}
 	
+	// Load a graph with the selected backend (from its binary snapshot if that is up to date)
+	public static MyBaseGraph loadGraph(String path, boolean directed)
+	{
+		boolean csr = COMPACT || OFFHEAP || COMPRESSED;
+		if(MyGraphSnapshot.isUpToDate(path))
+		{
+			// Directed networks are CSR graphs on the heap with any of the + backends
+			if(directed || !(OFFHEAP || COMPRESSED))
+				return MyGraphSnapshot.load(path, csr);
+			// Compressed graphs are encoded from the mapped snapshot
+			MyBaseGraph g = MyGraphSnapshot.loadOffHeap(path);
+			if(COMPRESSED && g instanceof MyCSRGraph && !(g instanceof MyDirectedCSRGraph))
+				return new MyCompressedCSRGraph((MyCSRGraph)g);
+			return g;
+		}
+		if(!csr)
+			return directed ? new MyDirectedGraph(path) : new MyGraph(path);
+		return withBackend(directed ? new MyDirectedCSRGraph(path) : new MyCSRGraph(path));
+	}
+	
+	// Backend selected by the + prefixes for a graph parsed or changed in memory
+	//   - directed graphs become CSR graphs on the heap with any of them (no off-heap or compressed variant)
+	private static MyBaseGraph withBackend(MyBaseGraph g)
+	{
+		if(!(COMPACT || OFFHEAP || COMPRESSED))
+			return g;
+		if(g instanceof MyDirectedGraph)
+			return new MyDirectedCSRGraph(g);
+		if(g instanceof MyGraph)
+			g = new MyCSRGraph(g);
+		if(g.getClass() != MyCSRGraph.class)
+			return g;
+		if(COMPRESSED)
+			return new MyCompressedCSRGraph((MyCSRGraph)g);
+		if(OFFHEAP)
+			return new MyOffHeapCSRGraph((MyCSRGraph)g);
+		return g;
+	}
+	
+	// Write a graph to TGF (gzipped if GZIP is set), with its binary snapshot next to it
+	public static void writeGraph(MyBaseGraph g, String path)
+	{
+		g.writeToTGF(GZIP ? path+".gz" : path);
+		// A copy in the other format would be found first (or instead) by the loaders
+		new File(GZIP ? path : path+".gz").delete();
+		MyGraphSnapshot.write(g, path);
+	}
+	
 	// Short name for the simulation
 	public static String getIdentifier(String network, Integer size, String mark)
 	{
@@ -403,9 +457,9 @@ public class Deanon
 		{
 			// Load source graph
 			System.out.println("> Loading: "+args[1]+".tgf (as directed)");
-			MyDirectedGraph g_src = new MyDirectedGraph("./data/"+args[1]+".tgf");
+			MyBaseGraph g_src = loadGraph("./data/"+args[1]+".tgf", true);
 			System.out.println("> Exporting a subnetwork of "+args[3]+" nodes");
-			MyDirectedGraph g_exp = g_src.export(Integer.parseInt(args[3]));
+			MyBaseGraph g_exp = g_src.export(Integer.parseInt(args[3]));
 			System.out.println("\t"+g_exp.vertexSet().size()+" nodes, "+g_exp.edgeSet().size()+" edges");
 			System.out.println("> Saving: "+args[2]+".tgf (as directed)");
 			g_exp.writeToTGF("./output/"+args[2]+".tgf");
@@ -418,12 +472,12 @@ public class Deanon
 			
 				// Load source graph
 				System.out.println("> Loading: "+args[1]+".tgf");
-				MyGraph g_src = new MyGraph("./data/"+args[1]+".tgf");
+				MyBaseGraph g_src = loadGraph("./data/"+args[1]+".tgf", false);
 				System.out.println("\t"+g_src.vertexSet().size()+" nodes, "+g_src.edgeSet().size()+" edges");
 				while(counter > 0)
 				{
 					System.out.println("> Exporting a subnetwork of "+args[3]+" nodes [v"+counter+"]");
-					MyGraph g_exp = g_src.export(Integer.parseInt(args[3]));
+					MyBaseGraph g_exp = g_src.export(Integer.parseInt(args[3]));
 					System.out.println("\t"+g_exp.vertexSet().size()+" nodes, "+g_exp.edgeSet().size()+" edges");
 					System.out.println("> Saving: "+args[2]+".tgf");
 					g_exp.writeToTGF("./output/"+args[2]+"_"+counter+".tgf");
@@ -452,11 +506,26 @@ public class Deanon
 		log();
 		log("@ "+timestamp());
 		log("Summarizing: "+args[1]);
-		MyGraph g = new MyGraph(path);
+		MyBaseGraph g = loadGraph(path, false);
 		
 		// Basic info
 		log("\t |V| = "+g.vertexSet().size()+", |E| = "+g.edgeSet().size());
 		
+		// Connected components
+		MyComponents cc = new MyComponents(g instanceof MyCSRGraph ? (MyCSRGraph)g : g instanceof MyGraph ? ((MyGraph)g).compact() : new MyCSRGraph(g));
+		// No largest component in an empty graph
+		int largest = cc.largest >= 0 ? cc.sizes[cc.largest] : 0;
+		int n = g.vertexSet().size();
+		log("\t components: "+cc.count+", largest: "+largest+" ("+(new DecimalFormat("#.##").format(n > 0 ? ((float)largest/n)*100 : 0))+"%)");
+		log("\t labeled in "+cc.timing());
+		try
+		{
+			FileWriter f = new FileWriter(outpath_prefix+"_cc.csv");
+			for(Map.Entry<Integer, Integer> e : cc.sizeDistribution().entrySet())
+				f.write(e.getKey()+";"+e.getValue()+"\n");
+			f.close();
+		} catch (IOException e) { e.printStackTrace(); }
+		
 		// Degree distribution
 		Map<Integer, Integer> freqs = new HashMap<Integer, Integer>();
 		List<Integer> vs = new ArrayList<Integer>(g.vertexSet());
@@ -586,8 +655,8 @@ public class Deanon
 					log("\t\tVariant: v"+Integer.toString(j));
 					
 					rv = libNS09.perturbate((MyGraph)sg, Float.parseFloat(args[7]), Float.parseFloat(args[8]));
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 					
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -603,8 +672,8 @@ public class Deanon
 					log("\t\tVariant: v"+Integer.toString(j));
 					
 					rv = libDNS09.perturbate((MyDirectedGraph)sg, Float.parseFloat(args[7]), Float.parseFloat(args[8]));
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 					
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -620,8 +689,8 @@ public class Deanon
 					log("\t\tVariant: v"+Integer.toString(j));
 					
 					rv = libSNG.perturbate((MyGraph)sg, Integer.parseInt(args[7]), Integer.parseInt(args[8]), Float.parseFloat(args[9]));
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 					
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -647,8 +716,8 @@ public class Deanon
 					else
 						rv.g_tar = new MyGraph(outdir+"/SimuData/e"+Integer.toString(i)+"_v0_tar.tgf");
 					
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 					
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -664,8 +733,8 @@ public class Deanon
 					log("\t\tVariant: v"+Integer.toString(j));
 
 					rv = libSPert.perturbate((MyGraph)sg, Float.parseFloat(args[7]), Float.parseFloat(args[8]));
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -685,8 +754,8 @@ public class Deanon
 					rv.g_src = sg.selfcopy();
 					rv.g_tar = sg.selfcopy();
 					
-					rv.g_src.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					rv.g_tar.writeToTGF(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
+					writeGraph(rv.g_src, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
+					writeGraph(rv.g_tar, outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_tar.tgf");
 					
 					log("\t\t\tg_src nodes: "+rv.g_src.vertexSet().size()+", edges: "+rv.g_src.edgeSet().size());
 					log("\t\t\tg_tar nodes: "+rv.g_tar.vertexSet().size()+", edges: "+rv.g_tar.edgeSet().size());
@@ -782,8 +851,7 @@ public class Deanon
 			{
 				for(int j = 0; j<100; j++)
 				{
-					File f2 = new File(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf");
-					if(!f2.exists())
+					if(!MyTGFReader.exists(outdir+"/SimuData/e"+Integer.toString(i)+"_v"+Integer.toString(j)+"_src.tgf"))
 						break;
 					perturb_count = j;
 				}
@@ -821,16 +889,16 @@ public class Deanon
 				// Load simulation data
 				if(args[1].contains("_directed"))
 				{
-					g_src = new MyDirectedGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src.tgf");
+					g_src = loadGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src.tgf", true);
 					log("\tg_src nodes: "+g_src.vertexSet().size()+", edges: "+g_src.edgeSet().size()+" (directed)");
-					g_tar = new MyDirectedGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_tar.tgf");
+					g_tar = loadGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_tar.tgf", true);
 					log("\tg_tar nodes: "+g_tar.vertexSet().size()+", edges: "+g_tar.edgeSet().size()+" (directed)");
 				}
 				else
 				{
-					g_src = new MyGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src.tgf");
+					g_src = loadGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src.tgf", false);
 					log("\tg_src nodes: "+g_src.vertexSet().size()+", edges: "+g_src.edgeSet().size());
-					g_tar = new MyGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_tar.tgf");
+					g_tar = loadGraph(outdir+"/SimuData/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_tar.tgf", false);
 					log("\tg_tar nodes: "+g_tar.vertexSet().size()+", edges: "+g_tar.edgeSet().size());
 				}
 				
@@ -845,10 +913,14 @@ public class Deanon
 				if(exclude != null)
 				{
 					System.out.println(Arrays.toString(exclude));
+					if(g_tar instanceof MyCSRGraph)
+						g_tar = g_tar.selfcopy();
 					for(int i = 0; i < exclude.length; i++)
 					{
 						g_tar.removeVertex(new Integer(exclude[i]));
 					}
+					// Back to the backend of g_src
+					g_tar = withBackend(g_tar);
 				}
 
 				// Header for the file storing the results
@@ -944,28 +1016,8 @@ public class Deanon
 						{
 							List<Integer> vertexSet = null;
 
-							vertexSet = new ArrayList<Integer>();
-
 							// Get top-deg nodes
-							List<DegIx> degixs = new ArrayList<DegIx>();
-							ArrayList<Integer> vs = new ArrayList<Integer>(g_src.vertexSet());
-							for(Integer v : vs)
-								degixs.add(new DegIx(v, g_src.degreeOf(v)));
-							Comparator<DegIx> comparator = new Comparator<DegIx>()
-						    {
-						        public int compare(DegIx tupleA, DegIx tupleB)
-						        {
-						            return tupleA.degree.compareTo(tupleB.degree);
-						        }
-						    };
-							Collections.sort(degixs, comparator);
-							for(int i = degixs.size()-1; i>=0; i--)
-							{
-								DegIx dit = degixs.get(i);
-								vertexSet.add(dit.index);
-								if(vertexSet.size() >= (int)(g_src.vertexSet().size()*top_percent))
-									break;
-							}
+							vertexSet = g_src.degreeIndex().topPercent(null, top_percent);
 							
 							libLTA.writeCache(g_src, outdir+"/Measures/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src_top="+top_percent, libLTA.LTA_A, vertexSet);
 						}
@@ -1017,28 +1069,8 @@ public class Deanon
 
 							if(top_percent < 1.0)
 							{
-								vertexSet = new ArrayList<Integer>();
-
 								// Get top-deg nodes
-								List<DegIx> degixs = new ArrayList<DegIx>();
-								ArrayList<Integer> vs = new ArrayList<Integer>(g_src.vertexSet());
-								for(Integer v : vs)
-									degixs.add(new DegIx(v, g_src.degreeOf(v)));
-								Comparator<DegIx> comparator = new Comparator<DegIx>()
-							    {
-							        public int compare(DegIx tupleA, DegIx tupleB)
-							        {
-							            return tupleA.degree.compareTo(tupleB.degree);
-							        }
-							    };
-								Collections.sort(degixs, comparator);
-								for(int i = degixs.size()-1; i>=0; i--)
-								{
-									DegIx dit = degixs.get(i);
-									vertexSet.add(dit.index);
-									if(vertexSet.size() >= (int)(g_src.vertexSet().size()*top_percent))
-										break;
-								}
+								vertexSet = g_src.degreeIndex().topPercent(null, top_percent);
 							}
 							
 							libBCC.writeCaches(g_src, vertexSet, outdir+"/Measures/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src_top="+top_percent);
@@ -1072,28 +1104,8 @@ public class Deanon
 
 							if(top_percent < 1.0)
 							{
-								vertexSet = new ArrayList<Integer>();
-
 								// Get top-deg nodes
-								List<DegIx> degixs = new ArrayList<DegIx>();
-								ArrayList<Integer> vs = new ArrayList<Integer>(g_src.vertexSet());
-								for(Integer v : vs)
-									degixs.add(new DegIx(v, g_src.degreeOf(v)));
-								Comparator<DegIx> comparator = new Comparator<DegIx>()
-							    {
-							        public int compare(DegIx tupleA, DegIx tupleB)
-							        {
-							            return tupleA.degree.compareTo(tupleB.degree);
-							        }
-							    };
-								Collections.sort(degixs, comparator);
-								for(int i = degixs.size()-1; i>=0; i--)
-								{
-									DegIx dit = degixs.get(i);
-									vertexSet.add(dit.index);
-									if(vertexSet.size() >= (int)(g_src.vertexSet().size()*top_percent))
-										break;
-								}
+								vertexSet = g_src.degreeIndex().topPercent(null, top_percent);
 							}
 							
 							libBCC.writeCaches(g_src, vertexSet, outdir+"/Measures/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src_top="+top_percent);
@@ -1127,28 +1139,8 @@ public class Deanon
 
 							if(top_percent < 1.0)
 							{
-								vertexSet = new ArrayList<Integer>();
-
 								// Get top-deg nodes
-								List<DegIx> degixs = new ArrayList<DegIx>();
-								ArrayList<Integer> vs = new ArrayList<Integer>(g_src.vertexSet());
-								for(Integer v : vs)
-									degixs.add(new DegIx(v, g_src.degreeOf(v)));
-								Comparator<DegIx> comparator = new Comparator<DegIx>()
-							    {
-							        public int compare(DegIx tupleA, DegIx tupleB)
-							        {
-							            return tupleA.degree.compareTo(tupleB.degree);
-							        }
-							    };
-								Collections.sort(degixs, comparator);
-								for(int i = degixs.size()-1; i>=0; i--)
-								{
-									DegIx dit = degixs.get(i);
-									vertexSet.add(dit.index);
-									if(vertexSet.size() >= (int)(g_src.vertexSet().size()*top_percent))
-										break;
-								}
+								vertexSet = g_src.degreeIndex().topPercent(null, top_percent);
 							}
 							
 							libLCC.writeCache(g_src, vertexSet, outdir+"/Measures/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src_top="+top_percent);
@@ -1182,28 +1174,8 @@ public class Deanon
 
 							if(top_percent < 1.0)
 							{
-								vertexSet = new ArrayList<Integer>();
-
 								// Get top-deg nodes
-								List<DegIx> degixs = new ArrayList<DegIx>();
-								ArrayList<Integer> vs = new ArrayList<Integer>(g_src.vertexSet());
-								for(Integer v : vs)
-									degixs.add(new DegIx(v, g_src.degreeOf(v)));
-								Comparator<DegIx> comparator = new Comparator<DegIx>()
-							    {
-							        public int compare(DegIx tupleA, DegIx tupleB)
-							        {
-							            return tupleA.degree.compareTo(tupleB.degree);
-							        }
-							    };
-								Collections.sort(degixs, comparator);
-								for(int i = degixs.size()-1; i>=0; i--)
-								{
-									DegIx dit = degixs.get(i);
-									vertexSet.add(dit.index);
-									if(vertexSet.size() >= (int)(g_src.vertexSet().size()*top_percent))
-										break;
-								}
+								vertexSet = g_src.degreeIndex().topPercent(null, top_percent);
 							}
 							
 							libLCC.writeCache(g_src, vertexSet, outdir+"/Measures/e"+Integer.toString(export_id)+"_v"+Integer.toString(perturb_id)+"_src_top="+top_percent);
@@ -1267,11 +1239,11 @@ public class Deanon
 						num_rounds++;
 
 						if (args[4].equals("ns09"))
-							libNS09.propagateStep((MyGraph) g_src, (MyGraph) g_tar, propData);
+							libNS09.propagateStep(g_src, g_tar, propData);
 						else if (args[4].equals("sng"))
-							libSNG.propagateStep((MyGraph) g_src, (MyGraph) g_tar, propData);
+							libSNG.propagateStep(g_src, g_tar, propData);
 						else if (args[4].equals("dns09"))
-							libDNS09.propagateStep((MyDirectedGraph) g_src, (MyDirectedGraph) g_tar, propData);
+							libDNS09.propagateStep((MyDirectedBaseGraph) g_src, (MyDirectedBaseGraph) g_tar, propData);
 						else if (args[4].equals("grh"))
 						{
 							if (num_rounds > libGrh.maxPropagationSteps)
@@ -1288,9 +1260,9 @@ public class Deanon
 								continue;
 							}
 
-							libGrh.propagateStep((MyGraph) g_src, (MyGraph) g_tar, propData);
+							libGrh.propagateStep(g_src, g_tar, propData);
 						} else if (args[4].equals("blb"))
-							libBlb.propagateStep((MyGraph) g_src, (MyGraph) g_tar, propData);
+							libBlb.propagateStep(g_src, g_tar, propData);
 
 						// Save more detailed stats if debug mode is on
 						if (DEBUG)
@@ -1455,7 +1427,9 @@ public class Deanon
 					}
 
 					// Mappings that should not even exist:
-					List<Integer> outofgt = new ArrayList<Integer>(matches[ctr].forward.keySet());
+					List<Integer> outofgt = new ArrayList<Integer>();
+					for(int v : matches[ctr].sources())
+						outofgt.add(v);
 					outofgt.removeAll(vs);
 
 					accuracy[3] = accuracy[0] + outofgt.size();
@@ -1536,30 +1510,33 @@ public class Deanon
 				{
 					for(int pc = 0; pc<100; pc++)
 					{
-						File src_tgf = new File(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf");
-						if(!src_tgf.exists())
+						if(!MyTGFReader.exists(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf"))
 						{
 							if(pc == 0)
 								breakloop = true;
 							break;
 						}
 						
+						// Loaded once, only if some of the caches are missing
+						MyBaseGraph g_src = null;
 						if(!libDEG.cacheExists(outdir+"/Measures/e"+ec+"_v"+pc+"_src"))
 						{
 							log("\te"+ec+"_v"+pc+"_src.deg");
-							MyGraph g_src = new MyGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf");
+							g_src = loadGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf", false);
 							libDEG.writeCache(g_src, outdir+"/Measures/e"+ec+"_v"+pc+"_src");
 						}
 						if(!libLTA.cacheExists(outdir+"/Measures/e"+ec+"_v"+pc+"_src", libLTA.LTA_D))
 						{
 							log("\te"+ec+"_v"+pc+"_src.lta");
-							MyGraph g_src = new MyGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf");
+							if(g_src == null)
+								g_src = loadGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf", false);
 							libLTA.writeCache(g_src, outdir+"/Measures/e"+ec+"_v"+pc+"_src", libLTA.LTA_D);
 						}
 						if(!libLTA.cacheExists(outdir+"/Measures/e"+ec+"_v"+pc+"_src", libLTA.LTA_A))
 						{
 							log("\te"+ec+"_v"+pc+"_src.lta");
-							MyGraph g_src = new MyGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf");
+							if(g_src == null)
+								g_src = loadGraph(outdir+"/SimuData/e"+ec+"_v"+pc+"_src.tgf", false);
 							libLTA.writeCaches(g_src, outdir+"/Measures/e"+ec+"_v"+pc+"_src");
 						}
 					}
@@ -1690,7 +1667,7 @@ public class Deanon
 		{
 			log("Measuring: "+args[1]+" with "+args[2]+" ("+(Double.parseDouble(args[3])*100)+"% only)");
 		}
-		MyGraph g = new MyGraph("./data/"+args[1]+".tgf");
+		MyBaseGraph g = loadGraph("./data/"+args[1]+".tgf", false);
 		
 		// Measuring betweenness or closeness centrality
 		if(args[2].contains("betwc") || args[2].contains("closec"))
@@ -1708,28 +1685,8 @@ public class Deanon
 
 				if(top_percent < 1.0)
 				{
-					vertexSet = new ArrayList<Integer>();
-
 					// Get top-deg nodes
-					List<DegIx> degixs = new ArrayList<DegIx>();
-					ArrayList<Integer> vs = new ArrayList<Integer>(g.vertexSet());
-					for(Integer v : vs)
-						degixs.add(new DegIx(v, g.degreeOf(v)));
-					Comparator<DegIx> comparator = new Comparator<DegIx>()
-				    {
-				        public int compare(DegIx tupleA, DegIx tupleB)
-				        {
-				            return tupleA.degree.compareTo(tupleB.degree);
-				        }
-				    };
-					Collections.sort(degixs, comparator);
-					for(int i = degixs.size()-1; i>=0; i--)
-					{
-						DegIx dit = degixs.get(i);
-						vertexSet.add(dit.index);
-						if(vertexSet.size() >= (int)(g.vertexSet().size()*top_percent))
-							break;
-					}
+					vertexSet = g.degreeIndex().topPercent(null, top_percent);
 				}
 				
 				libBCC.writeCaches(g, vertexSet, cachefile);
@@ -1781,28 +1738,8 @@ public class Deanon
 
 				if(top_percent < 1.0)
 				{
-					vertexSet = new ArrayList<Integer>();
-
 					// Get top-deg nodes
-					List<DegIx> degixs = new ArrayList<DegIx>();
-					ArrayList<Integer> vs = new ArrayList<Integer>(g.vertexSet());
-					for(Integer v : vs)
-						degixs.add(new DegIx(v, g.degreeOf(v)));
-					Comparator<DegIx> comparator = new Comparator<DegIx>()
-				    {
-				        public int compare(DegIx tupleA, DegIx tupleB)
-				        {
-				            return tupleA.degree.compareTo(tupleB.degree);
-				        }
-				    };
-					Collections.sort(degixs, comparator);
-					for(int i = degixs.size()-1; i>=0; i--)
-					{
-						DegIx dit = degixs.get(i);
-						vertexSet.add(dit.index);
-						if(vertexSet.size() >= (int)(g.vertexSet().size()*top_percent))
-							break;
-					}
+					vertexSet = g.degreeIndex().topPercent(null, top_percent);
 				}
 				
 				libLCC.writeCache(g, vertexSet, cachefile);
@@ -0,0 +1,130 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package deanon;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import deanon.structures.Matches;
+import deanon.structures.PropagationData;
+import mygraph.*;
+
+// Parallel propagation step (for ns09 and blb, grh only uses the parallel scoring)
+//   - sources are scored on a ForkJoin pool against a snapshot of the matches taken at the start of the step
+//   - proposed matches are committed afterwards in the order of g_src.vertexSet(), so with Theta > 0 the result
+//     does not depend on the number of threads (a match is seen by the other sources only in the next step);
+//     with Theta <= 0 ties are broken at random, and runs differ the same way as sequential ones do
+//   - sources mapped in the snapshot are skipped: reverse candidates are always unmapped, so they can not match again
+public class ParallelPropagation
+{
+	// Sources scored by one task
+	private static final int CHUNK = 256;
+
+	private static ForkJoinPool pool = null;
+
+	public interface Scorer
+	{
+		// Forward and reverse check of a source against the snapshot (the target it is matched to, or null)
+		public Integer match(Integer source, PropagationData snapshot);
+	}
+
+	// Returns true if there were new matches
+	public static boolean step(MyBaseGraph g_src, MyBaseGraph g_tar, PropagationData propData, final Scorer scorer)
+	{
+		prepare(g_src);
+		prepare(g_tar);
+		final PropagationData snapshot = new PropagationData();
+		snapshot.matches = propData.matches.snapshot();
+
+		Integer[] sources = new Integer[g_src.vertexSet().size()];
+		int c = 0;
+		for(Object v : g_src.vertexSet())
+			sources[c++] = (Integer)v;
+		Integer[] proposals = proposals(sources, snapshot, scorer, true);
+
+		// Commit in source order
+		//   - with Theta > 0 a target is proposed at most once (only by its single reverse choice)
+		//   - with Theta <= 0 reverse ties are picked at random per source, so a target may be proposed
+		//     by several sources, the first one in source order gets it
+		Matches matches = propData.matches;
+		boolean convergence = false;
+		for(int i = 0; i < sources.length; i++)
+		{
+			if(proposals[i] == null || matches.isMapped(sources[i]) || matches.isReverseMapped(proposals[i]))
+				continue;
+			matches.add(sources[i], proposals[i]);
+			convergence = true;
+		}
+		return convergence;
+	}
+
+	// Scorer results of the sources (null if none), computed on the pool against read-only propagation data
+	//   - sources mapped in it are skipped if skip_mapped is set
+	public static Integer[] proposals(Integer[] sources, PropagationData snapshot, Scorer scorer, boolean skip_mapped)
+	{
+		Integer[] proposals = new Integer[sources.length];
+		pool().invoke(new Score(sources, proposals, snapshot, scorer, skip_mapped, 0, sources.length));
+		return proposals;
+	}
+
+	// Build the lazy index and snapshot of a graph before the threads need them (so they do not wait for it)
+	public static void prepare(MyBaseGraph g)
+	{
+		if(g.vertexIndex().size() > 0)
+			g.degreeAt(0);
+	}
+
+	private static synchronized ForkJoinPool pool()
+	{
+		if(pool == null || pool.getParallelism() != Deanon.THREADS)
+		{
+			if(pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(Deanon.THREADS);
+		}
+		return pool;
+	}
+
+	private static class Score extends RecursiveAction
+	{
+		private final Integer[] sources, proposals;
+		private final PropagationData snapshot;
+		private final Scorer scorer;
+		private final boolean skip_mapped;
+		private final int from, to;
+
+		Score(Integer[] sources, Integer[] proposals, PropagationData snapshot, Scorer scorer, boolean skip_mapped, int from, int to)
+		{
+			this.sources = sources;
+			this.proposals = proposals;
+			this.snapshot = snapshot;
+			this.scorer = scorer;
+			this.skip_mapped = skip_mapped;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute()
+		{
+			if(to - from > CHUNK)
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new Score(sources, proposals, snapshot, scorer, skip_mapped, from, mid), new Score(sources, proposals, snapshot, scorer, skip_mapped, mid, to));
+				return;
+			}
+			for(int i = from; i < to; i++)
+				if(!skip_mapped || !snapshot.matches.isMapped(sources[i]))
+					proposals[i] = scorer.match(sources[i], snapshot);
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+}
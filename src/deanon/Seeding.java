@@ -15,11 +15,11 @@ import java.util.*;
 import analysis.libLTA;
 
 import deanon.structures.GroundTruth;
-import deanon.structures.tuples.DegIx;
 import deanon.structures.tuples.DictTuple;
 
 import mygraph.MyBaseGraph;
 import mygraph.MyGraph;
+import mygraph.MyInducedGraph;
 
 public class Seeding
 {
@@ -36,29 +36,15 @@ public class Seeding
 		// Filter nodes having a low degree value
 		if(top_percent < 1.0)
 		{
-			List<DegIx> degixs = new ArrayList<DegIx>();
-			for(Integer v : common_vs)
-				degixs.add(new DegIx(v, g_src.degreeOf(v)));
-			Comparator<DegIx> comparator = new Comparator<DegIx>()
-		    {
-		        public int compare(DegIx tupleA, DegIx tupleB)
-		        {
-		            return tupleA.degree.compareTo(tupleB.degree);
-		        }
-		    };
-			Collections.sort(degixs, comparator);
-			ArrayList<Integer> vs = new ArrayList<Integer>();
-			for(int i = degixs.size()-1; i>=0; i--)
-			{
-				DegIx dit = degixs.get(i);
-				vs.add(dit.index);
-				if(vs.size() >= (int)(common_vs.size()*top_percent))
-					break;
-			}
+			List<Integer> vs = g_src.degreeIndex().topPercent(common_vs, top_percent);
 			common_vs.clear();
 			common_vs.addAll(vs);
 		}
 		
+		// Neighbors within the candidates come from an induced view, used ones are skipped
+		MyBaseGraph cg = new MyInducedGraph(g_src, common_vs);
+		Set<Integer> used = new HashSet<Integer>();
+		
 		int progress = 0;
 		System.out.print("\t    Cliques: [");
 		
@@ -71,16 +57,16 @@ public class Seeding
 			clique.add(v);
 			// Then its neighbors that are also in the common set
 			List<Integer> cnbrs = new ArrayList();
-			for(Integer vt : g_src.neighborsOf(v))
-				if(common_vs.contains(vt))
+			for(Integer vt : cg.neighborsOf(v))
+				if(!used.contains(vt))
 					cnbrs.add(vt);
 			// Now try to get a clique of the given size around it by adding nodes
 			while(clique.size() < clique_size && cnbrs.size() > 0)
 			{
 				Integer vt = cnbrs.get(new Random().nextInt(cnbrs.size()));
 				List<Integer> vt_nbrs = new ArrayList();
-				for(Integer vt2 : g_src.neighborsOf(vt))
-					if(common_vs.contains(vt2))
+				for(Integer vt2 : cg.neighborsOf(vt))
+					if(!used.contains(vt2))
 						vt_nbrs.add(vt2);
 				clique.add(vt);
 				cnbrs.retainAll(vt_nbrs);
@@ -89,6 +75,7 @@ public class Seeding
 				continue;
 			cliques.add(clique);
 			common_vs.removeAll(clique);
+			used.addAll(clique);
 			
 			int new_progress = Math.round((cliques.size()/(float)seed_count)*100);
 			if(new_progress-progress > 0)
@@ -117,25 +104,7 @@ public class Seeding
 
 		if(top_percent < 1.0)
 		{
-			List<DegIx> degixs = new ArrayList<DegIx>();
-			for(Integer v : gt.common_vertices)
-				degixs.add(new DegIx(v, g_src.degreeOf(v)));
-			Comparator<DegIx> comparator = new Comparator<DegIx>()
-		    {
-		        public int compare(DegIx tupleA, DegIx tupleB)
-		        {
-		            return tupleA.degree.compareTo(tupleB.degree);
-		        }
-		    };
-			Collections.sort(degixs, comparator);
-			ArrayList<Integer> vs = new ArrayList<Integer>();
-			for(int i = degixs.size()-1; i>=0; i--)
-			{
-				DegIx dit = degixs.get(i);
-				vs.add(dit.index);
-				if(vs.size() >= (int)(gt.common_vertices.size()*top_percent))
-					break;
-			}
+			List<Integer> vs = g_src.degreeIndex().topPercent(gt.common_vertices, top_percent);
 			common_vs.addAll(vs);
 		}
 		else
@@ -162,30 +131,16 @@ public class Seeding
 		// Filter low degree nodes 
 		if(top_percent < 1.0)
 		{
-			List<DegIx> degixs = new ArrayList<DegIx>();
-			for(Integer v : gt.common_vertices)
-				degixs.add(new DegIx(v, g_src.degreeOf(v)));
-			Comparator<DegIx> comparator = new Comparator<DegIx>()
-		    {
-		        public int compare(DegIx tupleA, DegIx tupleB)
-		        {
-		            return tupleA.degree.compareTo(tupleB.degree);
-		        }
-		    };
-			Collections.sort(degixs, comparator);
-			ArrayList<Integer> vs = new ArrayList<Integer>();
-			for(int i = degixs.size()-1; i>=0; i--)
-			{
-				DegIx dit = degixs.get(i);
-				vs.add(dit.index);
-				if(vs.size() >= (int)(gt.common_vertices.size()*top_percent))
-					break;
-			}
+			List<Integer> vs = g_src.degreeIndex().topPercent(gt.common_vertices, top_percent);
 			common_vs.addAll(vs);
 		}
 		else
 			common_vs.addAll(gt.common_vertices);
 		
+		// Neighbors within the candidates come from an induced view, seeds are skipped
+		MyBaseGraph cg = new MyInducedGraph(g_src, common_vs);
+		Set<Integer> used = new HashSet<Integer>();
+		
 		// Do the BFS
 		int progress = 0;
 		System.out.print("\t    BFS-patterns: [");
@@ -196,6 +151,7 @@ public class Seeding
 			Queue<Integer> queue = new LinkedList();
 			Integer v = common_vs.get(new Random().nextInt(common_vs.size()));
 			seeds.add(v);
+			used.add(v);
 			common_vs.remove(v);
 			queue.offer(v);
 			
@@ -204,13 +160,14 @@ public class Seeding
 			while(queue.size() > 0 && bfs_size_tmp > 0 && seeds.size() < seed_count)
 			{
 				Integer v1 = queue.poll();
-				List<Integer> nbrs = new ArrayList(g_src.neighborsOf(v1));
+				List<Integer> nbrs = new ArrayList(cg.neighborsOf(v1));
 				Collections.shuffle(nbrs);
 				for(Integer v2 : nbrs)
 				{
-					if(common_vs.contains(v2) && !seeds.contains(v2))
+					if(!used.contains(v2))
 					{
 						seeds.add(v2);
+						used.add(v2);
 						common_vs.remove(v2);
 						queue.offer(v2);
 						bfs_size_tmp--;
@@ -241,31 +198,7 @@ public class Seeding
 	// Seeding top nodes
 	public static List<Integer> getTopNodes(MyBaseGraph g_src, MyBaseGraph g_tar, GroundTruth gt, int seed_count)
 	{
-		List<DegIx> degixs = new ArrayList<DegIx>();
-		for(Integer v : gt.common_vertices)
-			degixs.add(new DegIx(v, g_src.degreeOf(v)));
-		
-		Comparator<DegIx> comparator = new Comparator<DegIx>()
-	    {
-	        public int compare(DegIx tupleA, DegIx tupleB)
-	        {
-	            return tupleA.degree.compareTo(tupleB.degree);
-	        }
-
-	    };
-		
-		Collections.sort(degixs, comparator);
-		
-		List<Integer> seeds = new ArrayList();
-		for(int i = degixs.size()-1; i>=0; i--)
-		{
-			DegIx dit = degixs.get(i);
-			seeds.add(dit.index);
-			if(seeds.size() >= seed_count)
-				break;
-		}
-
-		return seeds;
+		return g_src.degreeIndex().top(gt.common_vertices, seed_count);
 	}
 	
 	// Seeding nodes selected by dictionary
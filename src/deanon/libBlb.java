@@ -12,9 +12,13 @@ package deanon;
 
 import deanon.structures.PerturbData;
 import deanon.structures.PropagationData;
+import deanon.structures.ReverseChoices;
+import mygraph.MyBaseGraph;
 import mygraph.MyEdge;
 import mygraph.MyGraph;
-import mygraph.MyMath;
+import mygraph.MyIntSlice;
+import mygraph.MyScoreboard;
+import mygraph.MyVertexIndex;
 
 import java.util.*;
 
@@ -33,129 +37,113 @@ public class libBlb
 	public static double Delta = 0.5;
 
 	// Propagate step
-	public static void propagateStep(MyGraph g_src, MyGraph g_tar, PropagationData propData)
+	public static void propagateStep(final MyBaseGraph g_src, final MyBaseGraph g_tar, PropagationData propData)
 	{
+		propData.bind(g_src, g_tar);
+		
+		if(Deanon.THREADS > 1)
+		{
+			// Shared by the threads, so nothing is cached
+			final ReverseChoices choices = new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, false);
+			propData.updateConvergence(ParallelPropagation.step(g_src, g_tar, propData, new ParallelPropagation.Scorer()
+			{
+				public Integer match(Integer source, PropagationData snapshot)
+				{
+					return choices.matchOf(source, snapshot);
+				}
+			}));
+			return;
+		}
+		
 		// Init
 		boolean convergence = false;
+		// Reverse choices are reused within the step
+		ReverseChoices choices = new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, true);
 
 		// Iterate source nodes
 		Set<Integer> src_vs = g_src.vertexSet();
 		for(Integer source_candidate : src_vs)
 		{
-			double max_score;
-			
-			// Get target candidates
-			Map<Integer, Double> target_candidates = matchScores(g_src, g_tar, source_candidate, propData, false);
+			// Forward and reverse eccentricity checks & target selection
+			Integer target_candidate = choices.matchOf(source_candidate, propData);
 			
-			// Forward eccentricity check & target selection
-			Integer target_candidate = null;
-			if(target_candidates.size() > 0 && (target_candidates.size() == 1 || eccentricity(target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(target_candidates.values());
-				List<Integer> top_target_candidates = new ArrayList();
-				for(Integer tc : target_candidates.keySet())
-					if(target_candidates.get(tc).equals(max_score))
-						top_target_candidates.add(tc);
-				if(top_target_candidates.size() > 0)
-					target_candidate = top_target_candidates.get(new Random().nextInt(top_target_candidates.size()));
-			}
-			
-			// If we have no target candidates, carry on
+			// If we have no match, carry on
 			if(target_candidate == null)
 			{
 				continue;
 			}
-			
-			// Reverse target candidates
-			Map<Integer, Double> reverse_target_candidates = matchScores(g_src, g_tar, target_candidate, propData, true);
-
-			// Reverse eccentricity check & target selection
-			Integer reverse_target_candidate = null;
-			if(reverse_target_candidates.size() > 0 && (reverse_target_candidates.size() == 1 || eccentricity(reverse_target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(reverse_target_candidates.values());
-				List<Integer> reverse_top_candidates = new ArrayList();
-				for(Integer rtc : reverse_target_candidates.keySet())
-					if(reverse_target_candidates.get(rtc).equals(max_score))
-						reverse_top_candidates.add(rtc);
-				if(reverse_top_candidates.size() > 0)
-					reverse_target_candidate = reverse_top_candidates.get(new Random().nextInt(reverse_top_candidates.size()));
-			}
-
-			// If we have no reverse target candidates, carry on
-			if(reverse_target_candidate == null)
-			{
-				continue;
-			}
 
-			// Do we have a match?
-			if(source_candidate.equals(reverse_target_candidate))
-			{
-				propData.matches.add(source_candidate, target_candidate);
-				convergence = true;
-			}
+			propData.matches.add(source_candidate, target_candidate);
+			choices.invalidate(propData.matches, g_src.vertexIndex().indexOf(source_candidate), g_tar.vertexIndex().indexOf(target_candidate));
+			convergence = true;
 		}
 
 		// Update convergence data
 		propData.updateConvergence(convergence);
 	}
 	
-	// Score eccentricity
-	public static double eccentricity(Collection<Double> collection)
+	// Scores of this algorithm for the shared forward and reverse choices
+	public static ReverseChoices.Scorer scorer(final MyBaseGraph g_src, final MyBaseGraph g_tar)
 	{
-		if(collection.size() < 2)
-			return 0.0;
-
-		List<Double> my_items = new ArrayList(collection);
-		
-		double std = MyMath.standardDeviation(my_items);
-		if(std == 0.0)
-			return 0.0;
-		
-		Double max_1 = Collections.max(my_items);
-		my_items.remove(max_1);
-		Double max_2 = Collections.max(my_items);
-		
-		return (max_1-max_2)/std;
+		return new ReverseChoices.Scorer()
+		{
+			public MyScoreboard matchScores(Integer candidate, PropagationData propData, boolean reverse)
+			{
+				return libBlb.matchScores(g_src, g_tar, candidate, propData, reverse);
+			}
+		};
 	}
 	
 	// Match scores
-	public static Map<Integer, Double> matchScores(MyGraph g_src, MyGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
+	public static MyScoreboard matchScores(MyBaseGraph g_src, MyBaseGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
 	{
-		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		MyVertexIndex src_ix = g_src.vertexIndex();
+		MyVertexIndex tar_ix = g_tar.vertexIndex();
+		MyScoreboard scores = MyScoreboard.ofThread(reverse ? src_ix.size() : tar_ix.size());
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
 		
 		if(!reverse)
 		{
 			// Get scores for mapped neighbors of candidate
-			for(Integer nbr : g_src.neighborsOf(candidate))
+			int candidate_ix = src_ix.indexOf(candidate);
+			double deg = g_src.degreeAt(candidate_ix);
+			g_src.neighborsAt(candidate_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isMapped(nbr))
+				int mapped_ix = propData.matches.targetAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				if(!g_tar.vertexSet().contains(propData.matches.get(nbr)))
-					System.out.println(propData.matches.get(nbr));
-				for(Integer nbr2 : g_tar.neighborsOf(propData.matches.get(nbr)))
-					if(!propData.matches.isReverseMapped(nbr2))
+				g_tar.neighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isReverseMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + Math.pow(Math.min(((double)g_src.degreeOf(candidate)/(double)g_tar.degreeOf(nbr2)), ((double)g_tar.degreeOf(nbr2))/(double)g_src.degreeOf(candidate)), Delta));
+						double deg2 = g_tar.degreeAt(nbrs2.array[k2]);
+						scores.add(nbrs2.array[k2], Math.pow(Math.min(deg/deg2, deg2/deg), Delta));
 					}
+				}
 			}
 		}
 		else
 		{
 			// Get scores for mapped neighbors of candidate
-			for(Integer nbr : g_tar.neighborsOf(candidate))
+			int candidate_ix = tar_ix.indexOf(candidate);
+			double deg = g_tar.degreeAt(candidate_ix);
+			g_tar.neighborsAt(candidate_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isReverseMapped(nbr))
+				int mapped_ix = propData.matches.sourceAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_src.neighborsOf(propData.matches.getReverse(nbr)))
-					if(!propData.matches.isMapped(nbr2))
+				g_src.neighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + Math.pow(Math.min(((double)g_tar.degreeOf(candidate)/(double)g_src.degreeOf(nbr2)), ((double)g_src.degreeOf(nbr2))/(double)g_tar.degreeOf(candidate)), Delta));
+						double deg2 = g_src.degreeAt(nbrs2.array[k2]);
+						scores.add(nbrs2.array[k2], Math.pow(Math.min(deg/deg2, deg2/deg), Delta));
 					}
+				}
 			}
 		}
 
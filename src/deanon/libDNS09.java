@@ -16,6 +16,7 @@ import org.jgrapht.traverse.*;
 
 import deanon.structures.PerturbData;
 import deanon.structures.PropagationData;
+import deanon.structures.ReverseChoices;
 
 import mygraph.*;
 
@@ -82,151 +83,129 @@ public class libDNS09
 	}
 	
 	// Propagate step
-	public static void propagateStep(MyDirectedGraph g_src, MyDirectedGraph g_tar, PropagationData propData)
+	public static void propagateStep(MyDirectedBaseGraph g_src, MyDirectedBaseGraph g_tar, PropagationData propData)
 	{
+		propData.bind(g_src, g_tar);
+		
 		// Init
 		boolean convergence = false;
+		// Reverse choices are reused within the step
+		ReverseChoices choices = new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, true);
 		
 		// Iterate source nodes
 		Set<Integer> src_vs = g_src.vertexSet();
 		for(Integer source_candidate : src_vs)
 		{
-			double max_score;
-			
-			// Get target candidates
-			Map<Integer, Double> target_candidates = matchScores(g_src, g_tar, source_candidate, propData, false);
-			
-			// Forward eccentricity check & target selection
-			Integer target_candidate = null;
-			if(target_candidates.size() > 0 && (target_candidates.size() == 1 || eccentricity(target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(target_candidates.values());
-				List<Integer> top_target_candidates = new ArrayList();
-				for(Integer tc : target_candidates.keySet())
-					if(target_candidates.get(tc).equals(max_score))
-						top_target_candidates.add(tc);
-				if(top_target_candidates.size() > 0)
-					target_candidate = top_target_candidates.get(new Random().nextInt(top_target_candidates.size()));
-			}
+			// Forward and reverse eccentricity checks & target selection
+			Integer target_candidate = choices.matchOf(source_candidate, propData);
 			
-			// If we have no target candidates, carry on
+			// If we have no match, carry on
 			if(target_candidate == null)
 				continue;
-			
-			// Reverse target candidates
-			Map<Integer, Double> reverse_target_candidates = matchScores(g_src, g_tar, target_candidate, propData, true);
-
-			// Reverse eccentricity check & target selection
-			Integer reverse_target_candidate = null;
-			if(reverse_target_candidates.size() > 0 && (reverse_target_candidates.size() == 1 || eccentricity(reverse_target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(reverse_target_candidates.values());
-				List<Integer> reverse_top_candidates = new ArrayList();
-				for(Integer rtc : reverse_target_candidates.keySet())
-					if(reverse_target_candidates.get(rtc).equals(max_score))
-						reverse_top_candidates.add(rtc);
-				if(reverse_top_candidates.size() > 0)
-					reverse_target_candidate = reverse_top_candidates.get(new Random().nextInt(reverse_top_candidates.size()));
-			}
-
-			// If we have no reverse target candidates, carry on
-			if(reverse_target_candidate == null)
-				continue;
 
-			// Do we have a match?
-			if(source_candidate.equals(reverse_target_candidate))
-			{
-				propData.matches.add(source_candidate, target_candidate);
-				convergence = true;
-			}
+			propData.matches.add(source_candidate, target_candidate);
+			choices.invalidate(propData.matches, g_src.vertexIndex().indexOf(source_candidate), g_tar.vertexIndex().indexOf(target_candidate));
+			convergence = true;
 		}
 		
 		// Update convergence data
 		propData.updateConvergence(convergence);
 	}
 	
-	// Score eccentricity
-	public static double eccentricity(Collection<Double> collection)
+	// Scores of this algorithm for the shared forward and reverse choices
+	public static ReverseChoices.Scorer scorer(final MyDirectedBaseGraph g_src, final MyDirectedBaseGraph g_tar)
 	{
-		if(collection.size() < 2)
-			return 0.0;
-
-		List<Double> my_items = new ArrayList(collection);
-		
-		double std = MyMath.standardDeviation(my_items);
-		if(std == 0.0)
-			return 0.0;
-		
-		double max_1 = Collections.max(my_items);
-		my_items.remove(max_1);
-		double max_2 = Collections.max(my_items);
-		
-		return (max_1-max_2)/std;
+		return new ReverseChoices.Scorer()
+		{
+			public MyScoreboard matchScores(Integer candidate, PropagationData propData, boolean reverse)
+			{
+				return libDNS09.matchScores(g_src, g_tar, candidate, propData, reverse);
+			}
+		};
 	}
 	
 	// Match scores
-	public static Map<Integer, Double> matchScores(MyDirectedGraph g_src, MyDirectedGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
+	public static MyScoreboard matchScores(MyDirectedBaseGraph g_src, MyDirectedBaseGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
 	{
-		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		MyVertexIndex src_ix = g_src.vertexIndex();
+		MyVertexIndex tar_ix = g_tar.vertexIndex();
+		MyScoreboard scores = MyScoreboard.ofThread(reverse ? src_ix.size() : tar_ix.size());
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
 		
 		if(!reverse)
 		{
+			int c_ix = src_ix.indexOf(candidate);
+			
 			// Get scores of mapped in-neighbors of candidate
-			for(Integer nbr : g_src.inNeighborsOf(candidate))
+			g_src.inNeighborsAt(c_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isMapped(nbr))
+				int mapped_ix = propData.matches.targetAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_tar.outNeighborsOf(propData.matches.get(nbr)))
-					if(!propData.matches.isReverseMapped(nbr2))
+				g_tar.outNeighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isReverseMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_tar.inDegreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_tar.inDegreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 			
 			// Get scores of mapped out-neighbors of candidate
-			for(Integer nbr : g_src.outNeighborsOf(candidate))
+			g_src.outNeighborsAt(c_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isMapped(nbr))
+				int mapped_ix = propData.matches.targetAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_tar.inNeighborsOf(propData.matches.get(nbr)))
-					if(!propData.matches.isReverseMapped(nbr2))
+				g_tar.inNeighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isReverseMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_tar.outDegreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_tar.outDegreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 		}
 		else
 		{
+			int c_ix = tar_ix.indexOf(candidate);
+			
 			// Get scores of mapped in-neighbors of candidate
-			for(Integer nbr : g_tar.inNeighborsOf(candidate))
+			g_tar.inNeighborsAt(c_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isReverseMapped(nbr))
+				int mapped_ix = propData.matches.sourceAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_src.outNeighborsOf(propData.matches.getReverse(nbr)))
-					if(!propData.matches.isMapped(nbr2))
+				g_src.outNeighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_src.inDegreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_src.inDegreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 			
 			// Get scores of mapped out-neighbors of candidate
-			for(Integer nbr : g_tar.outNeighborsOf(candidate))
+			g_tar.outNeighborsAt(c_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isReverseMapped(nbr))
+				int mapped_ix = propData.matches.sourceAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_src.inNeighborsOf(propData.matches.getReverse(nbr)))
-					if(!propData.matches.isMapped(nbr2))
+				g_src.inNeighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_src.outDegreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_src.outDegreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 		}
 		
@@ -14,6 +14,7 @@ import java.util.*;
 
 import org.jgrapht.traverse.*;
 
+import deanon.structures.GrasshopperWeights;
 import deanon.structures.Matches;
 import deanon.structures.PerturbData;
 import deanon.structures.PropagationData;
@@ -32,14 +33,17 @@ public class libGrh
 	public static double Theta = 1.0;
 	public static int maxPropagationSteps = 40;
 	public static int maxPropagationTime = 1200; // == 20 mins
+	// Update the weights from the match changes of the last step only
+	public static boolean INCREMENTAL = true;
 	
 	// Propagate step
-	public static void propagateStep(MyGraph g_src, MyGraph g_tar, PropagationData propData)
+	public static void propagateStep(final MyBaseGraph g_src, final MyBaseGraph g_tar, PropagationData propData)
 	{
 		//
 		// Init
 		//
 		boolean convergence = false;
+		propData.bind(g_src, g_tar);
 
 		// Debug stuff
 		long start_time = System.nanoTime();
@@ -48,49 +52,13 @@ public class libGrh
 		//
 		// Set weights
 		//
-		// Init
-		Map<Integer, Double> src_ws = new HashMap<Integer, Double>();
+		// Updated from the match changes since the last step (indexed by the dense vertex indexes)
+		if(!INCREMENTAL || propData.grh_weights == null || !propData.grh_weights.belongsTo(g_src, g_tar))
+			propData.grh_weights = new GrasshopperWeights(g_src, g_tar);
+		propData.grh_weights.update(propData.matches);
+		final double[] src_ws = propData.grh_weights.src_ws;
+		final double[] tar_ws = propData.grh_weights.tar_ws;
 		Set<Integer> src_vs = g_src.vertexSet();
-		for(Integer v : src_vs)
-			src_ws.put(v, 1.0);
-		Map<Integer, Double> tar_ws = new HashMap<Integer, Double>();
-		Set<Integer> tar_vs = g_tar.vertexSet();
-		for(Integer v : tar_vs)
-			tar_ws.put(v, 1.0);
-
-		// Weighting
-		for(Integer v : src_vs)
-		{
-			if(propData.matches.isMapped(v))
-			{
-				for(Integer nbr : g_src.neighborsOf(v))
-				{
-					Integer tar_v = propData.matches.get(v);
-					if(propData.matches.isMapped(nbr) && g_tar.neighborsOf(tar_v).contains(propData.matches.get(nbr)))
-					{
-						src_ws.put(v, src_ws.get(v)+1);
-						tar_ws.put(tar_v, tar_ws.get(tar_v)+1);
-					}
-				}
-			}
-		}
-
-		// Normalize
-		for(Integer v : src_vs)
-		{
-			if(propData.matches.isMapped(v))
-			{
-				Integer tar_v = propData.matches.get(v);
-				
-				double d1 = g_src.degreeOf(v);
-				double d2 = g_tar.degreeOf(tar_v);
-				double w1 = src_ws.get(v) / Math.sqrt(d1 * d2);
-				double w2 = tar_ws.get(tar_v) / Math.sqrt(d1 * d2);
-				
-				src_ws.put(v, w1);
-				tar_ws.put(tar_v, w2);
-			}
-		}
 		
 		long weights_time = 0;
 		if(Deanon.DEBUG)
@@ -103,32 +71,44 @@ public class libGrh
 		//
 		// Propagation
 		//
-		Matches matches_backup = new Matches();
-		matches_backup.forward = new Hashtable<Integer, Integer>(propData.matches.forward);
-		matches_backup.reverse = new Hashtable<Integer, Integer>(propData.matches.reverse);
+		// Scoring reads propData.matches only, new matches go to the backup
+		Matches matches_backup = propData.matches.snapshot();
+		Integer[] sources = src_vs.toArray(new Integer[0]);
+		Integer[] targets;
+		if(Deanon.THREADS > 1)
+		{
+			// All sources are scored in parallel, matches are added in the order of the sources as below
+			ParallelPropagation.prepare(g_src);
+			ParallelPropagation.prepare(g_tar);
+			targets = ParallelPropagation.proposals(sources, propData, new ParallelPropagation.Scorer()
+			{
+				public Integer match(Integer source, PropagationData frozen)
+				{
+					return matchOf(g_src, g_tar, src_ws, tar_ws, source, frozen);
+				}
+			}, false);
+		}
+		else
+		{
+			targets = new Integer[sources.length];
+			for(int i = 0; i < sources.length; i++)
+				targets[i] = matchOf(g_src, g_tar, src_ws, tar_ws, sources[i], propData);
+		}
 
 		// Iterate source nodes
-		for(Integer source_candidate : src_vs)
+		for(int i = 0; i < sources.length; i++)
 		{
-			double max_score;
+			Integer source_candidate = sources[i];
+			Integer target_candidate = targets[i];
 			
-			// Get target candidates
-			Integer target_candidate = bestMatch(g_src, g_tar, src_ws, tar_ws, source_candidate, propData, false);
-			
-			// Reverse target candidates
+			// Do we have a match?
 			if(target_candidate != null)
 			{
-				Integer reverse_candidate = bestMatch(g_src, g_tar, src_ws, tar_ws, target_candidate, propData, true);
-				
-				// Do we have a match?
-				if(source_candidate.equals(reverse_candidate))
-				{
-					if(propData.matches.isMapped(source_candidate) && propData.matches.get(source_candidate).equals(target_candidate))
-						continue;
+				if(propData.matches.isMapped(source_candidate) && propData.matches.get(source_candidate).equals(target_candidate))
+					continue;
 
-					matches_backup.add(source_candidate, target_candidate);
-					convergence = true;
-				}
+				matches_backup.add(source_candidate, target_candidate);
+				convergence = true;
 			}
 		}
 		
@@ -138,33 +118,50 @@ public class libGrh
 			long propstep_time = System.nanoTime();
 			difference = (propstep_time - weights_time)/1e6;
 		}
-		propData.matches.forward = new Hashtable<Integer, Integer>(matches_backup.forward);
-		propData.matches.reverse = new Hashtable<Integer, Integer>(matches_backup.reverse);
+		propData.matches.assign(matches_backup);
 		
 		// Update convergence data
 		propData.updateConvergence(convergence);
 	}
 	
+	// Target of a source if the forward and reverse best matches agree (or null)
+	public static Integer matchOf(MyBaseGraph g_src, MyBaseGraph g_tar, double[] src_ws, double[] tar_ws, Integer source_candidate, PropagationData propData)
+	{
+		// Get target candidates
+		Integer target_candidate = bestMatch(g_src, g_tar, src_ws, tar_ws, source_candidate, propData, false);
+		if(target_candidate == null)
+			return null;
+
+		// Reverse target candidates
+		Integer reverse_candidate = bestMatch(g_src, g_tar, src_ws, tar_ws, target_candidate, propData, true);
+		return source_candidate.equals(reverse_candidate) ? target_candidate : null;
+	}
+	
 	// Match scores
-	public static Integer bestMatch(MyGraph g_src, MyGraph g_tar, Map<Integer, Double> src_ws, Map<Integer, Double> tar_ws, Integer candidate, PropagationData propData, boolean reverse)
+	public static Integer bestMatch(MyBaseGraph g_src, MyBaseGraph g_tar, double[] src_ws, double[] tar_ws, Integer candidate, PropagationData propData, boolean reverse)
 	{
 		Integer best_match = null;
 		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		MyVertexIndex src_ix = g_src.vertexIndex();
+		MyVertexIndex tar_ix = g_tar.vertexIndex();
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
 
 		if(!reverse)
 		{
 			// Scoring -> pretty much optimized compared to the code of Benedek
-			for(Integer nbr : g_src.neighborsOf(candidate))
+			g_src.neighborsAt(src_ix.indexOf(candidate), nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				Integer v = null;
-				if(propData.matches.isMapped(nbr))
+				int v_ix = propData.matches.targetAt(nbrs.array[k]);
+				if(v_ix >= 0)
 				{
-					v = propData.matches.get(nbr);
-					for(Integer nbr2 : g_tar.neighborsOf(v))
+					g_tar.neighborsAt(v_ix, nbrs2);
+					for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
 					{
+						Integer nbr2 = tar_ix.idOf(nbrs2.array[k2]);
 						if(!scores.containsKey(nbr2))
 							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + tar_ws.get(v));
+						scores.put(nbr2, scores.get(nbr2) + tar_ws[v_ix]);
 					}
 				}
 			}
@@ -202,16 +199,19 @@ public class libGrh
 		else
 		{
 			// Scoring
-			for(Integer nbr : g_tar.neighborsOf(candidate))
+			g_tar.neighborsAt(tar_ix.indexOf(candidate), nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(propData.matches.isReverseMapped(nbr))
+				int v_ix = propData.matches.sourceAt(nbrs.array[k]);
+				if(v_ix >= 0)
 				{
-					Integer v = propData.matches.getReverse(nbr);
-					for(Integer nbr2 : g_src.neighborsOf(v))
+					g_src.neighborsAt(v_ix, nbrs2);
+					for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
 					{
+						Integer nbr2 = src_ix.idOf(nbrs2.array[k2]);
 						if(!scores.containsKey(nbr2))
 							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + src_ws.get(v));
+						scores.put(nbr2, scores.get(nbr2) + src_ws[v_ix]);
 					}
 				}
 			}
@@ -14,8 +14,11 @@ import java.util.*;
 
 import org.jgrapht.traverse.*;
 
+import deanon.structures.Matches;
 import deanon.structures.PerturbData;
 import deanon.structures.PropagationData;
+import deanon.structures.PropagationFrontier;
+import deanon.structures.ReverseChoices;
 
 import mygraph.*;
 
@@ -30,6 +33,8 @@ import mygraph.*;
 public class libNS09
 {
 	public static double Theta = 1.0;
+	// Re-score only the sources whose scores could change since the last step (needs Theta > 0)
+	public static boolean INCREMENTAL = true;
 
 	public static PerturbData perturbate(MyGraph g, float alpha_v, float alpha_e)
 	{
@@ -82,129 +87,194 @@ public class libNS09
 	}
 	
 	// Propagate step
-	public static void propagateStep(MyGraph g_src, MyGraph g_tar, PropagationData propData)
+	public static void propagateStep(final MyBaseGraph g_src, final MyBaseGraph g_tar, PropagationData propData)
 	{
+		propData.bind(g_src, g_tar);
+		
+		if(Deanon.THREADS > 1)
+		{
+			// Shared by the threads, so nothing is cached
+			final ReverseChoices choices = new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, false);
+			propData.updateConvergence(ParallelPropagation.step(g_src, g_tar, propData, new ParallelPropagation.Scorer()
+			{
+				public Integer match(Integer source, PropagationData snapshot)
+				{
+					return choices.matchOf(source, snapshot);
+				}
+			}));
+			return;
+		}
+		
+		// With Theta > 0 ties are never accepted, so unchanged scores give unchanged choices
+		if(INCREMENTAL && Theta > 0)
+		{
+			propagateFrontier(g_src, g_tar, propData);
+			return;
+		}
+		
 		// Init
 		boolean convergence = false;
+		// Reverse choices are reused within the step
+		ReverseChoices choices = new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, true);
 
 		// Iterate source nodes
 		Set<Integer> src_vs = g_src.vertexSet();
 		for(Integer source_candidate : src_vs)
 		{
-			double max_score;
-			
-			// Get target candidates
-			Map<Integer, Double> target_candidates = matchScores(g_src, g_tar, source_candidate, propData, false);
-			
-			// Forward eccentricity check & target selection
-			Integer target_candidate = null;
-			if(target_candidates.size() > 0 && (target_candidates.size() == 1 || eccentricity(target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(target_candidates.values());
-				List<Integer> top_target_candidates = new ArrayList();
-				for(Integer tc : target_candidates.keySet())
-					if(target_candidates.get(tc).equals(max_score))
-						top_target_candidates.add(tc);
-				if(top_target_candidates.size() > 0)
-					target_candidate = top_target_candidates.get(new Random().nextInt(top_target_candidates.size()));
-			}
+			// Forward and reverse eccentricity checks & target selection
+			Integer target_candidate = choices.matchOf(source_candidate, propData);
 			
-			// If we have no target candidates, carry on
+			// If we have no match, carry on
 			if(target_candidate == null)
 			{
 				continue;
 			}
-			
-			// Reverse target candidates
-			Map<Integer, Double> reverse_target_candidates = matchScores(g_src, g_tar, target_candidate, propData, true);
 
-			// Reverse eccentricity check & target selection
-			Integer reverse_target_candidate = null;
-			if(reverse_target_candidates.size() > 0 && (reverse_target_candidates.size() == 1 || eccentricity(reverse_target_candidates.values()) >= Theta))
-			{
-				max_score = Collections.max(reverse_target_candidates.values());
-				List<Integer> reverse_top_candidates = new ArrayList();
-				for(Integer rtc : reverse_target_candidates.keySet())
-					if(reverse_target_candidates.get(rtc).equals(max_score))
-						reverse_top_candidates.add(rtc);
-				if(reverse_top_candidates.size() > 0)
-					reverse_target_candidate = reverse_top_candidates.get(new Random().nextInt(reverse_top_candidates.size()));
-			}
+			propData.matches.add(source_candidate, target_candidate);
+			choices.invalidate(propData.matches, g_src.vertexIndex().indexOf(source_candidate), g_tar.vertexIndex().indexOf(target_candidate));
+			convergence = true;
+		}
 
-			// If we have no reverse target candidates, carry on
-			if(reverse_target_candidate == null)
-			{
+		// Update convergence data
+		propData.updateConvergence(convergence);
+	}
+	
+	// Propagate step over the frontier only
+	//   - matches are final: mapped sources and reverse mapped targets are never candidates again,
+	//     so only unmapped sources are scored
+	//   - forward choices are kept per source, reverse choices per target, until a new match changes their inputs
+	//   - sources are visited in the order of the full scan, so the same matches are made
+	public static void propagateFrontier(MyBaseGraph g_src, MyBaseGraph g_tar, PropagationData propData)
+	{
+		// Init (again, if the matches were changed outside of the steps)
+		Matches matches = propData.matches;
+		PropagationFrontier f = propData.frontier;
+		if(f == null || !f.belongsTo(g_src, g_tar, matches))
+			f = propData.frontier = new PropagationFrontier(g_src, g_tar, matches, new ReverseChoices(g_src, g_tar, scorer(g_src, g_tar), Theta, true));
+		MyVertexIndex src_ix = g_src.vertexIndex();
+		MyVertexIndex tar_ix = g_tar.vertexIndex();
+		boolean convergence = false;
+
+		for(int p = f.pending.nextSetBit(0); p >= 0; p = f.pending.nextSetBit(p+1))
+		{
+			int s = f.order[p];
+			Integer source_candidate = src_ix.idOf(s);
+			if(matches.isMappedAt(s))
 				continue;
+
+			// Forward choice
+			if(f.forward_dirty[s])
+			{
+				f.setForward(s, f.choices.forward(source_candidate, propData));
 			}
+			int t = f.forward[s];
+			if(t < 0)
+				continue;
 
-			// Do we have a match?
-			if(source_candidate.equals(reverse_target_candidate))
+			// Do we have a match? (the reverse choice is scored again only if it was touched)
+			if(f.choices.reverse(t, propData) == s)
 			{
-				propData.matches.add(source_candidate, target_candidate);
+				matches.add(source_candidate, tar_ix.idOf(t));
+				touch(g_src, g_tar, matches, f, s, t, p);
 				convergence = true;
 			}
 		}
+		f.advance();
 
 		// Update convergence data
 		propData.updateConvergence(convergence);
 	}
 	
-	// Score eccentricity
-	public static double eccentricity(Collection<Double> collection)
+	// Mark the sources and targets whose scores are changed by the new match (s1, t1)
+	private static void touch(MyBaseGraph g_src, MyBaseGraph g_tar, Matches matches, PropagationFrontier f, int s1, int t1, int current)
 	{
-		if(collection.size() < 2)
-			return 0.0;
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
 
-		List<Double> my_items = new ArrayList(collection);
-		
-		double std = MyMath.standardDeviation(my_items);
-		if(std == 0.0)
-			return 0.0;
-		
-		double max_1 = Collections.max(my_items);
-		my_items.remove(max_1);
-		double max_2 = Collections.max(my_items);
-		
-		return (max_1-max_2)/std;
+		// s1 is a new mapped neighbor of its neighbors,
+		// and it is no longer a reverse candidate of the targets around the images of its mapped neighbors
+		g_src.neighborsAt(s1, nbrs);
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			f.touchSource(nbrs.array[k], current);
+			int mapped_ix = matches.targetAt(nbrs.array[k]);
+			if(mapped_ix < 0)
+				continue;
+			g_tar.neighborsAt(mapped_ix, nbrs2);
+			for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				f.touchTarget(nbrs2.array[k2], current);
+		}
+
+		// t1 is a new reverse mapped neighbor of its neighbors,
+		// and it is no longer a candidate of the sources around the preimages of its reverse mapped neighbors
+		g_tar.neighborsAt(t1, nbrs);
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			f.touchTarget(nbrs.array[k], current);
+			int mapped_ix = matches.sourceAt(nbrs.array[k]);
+			if(mapped_ix < 0)
+				continue;
+			g_src.neighborsAt(mapped_ix, nbrs2);
+			for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				f.touchSource(nbrs2.array[k2], current);
+		}
+	}
+	
+	// Scores of this algorithm for the shared forward and reverse choices
+	public static ReverseChoices.Scorer scorer(final MyBaseGraph g_src, final MyBaseGraph g_tar)
+	{
+		return new ReverseChoices.Scorer()
+		{
+			public MyScoreboard matchScores(Integer candidate, PropagationData propData, boolean reverse)
+			{
+				return libNS09.matchScores(g_src, g_tar, candidate, propData, reverse);
+			}
+		};
 	}
 	
 	// Match scores
-	public static Map<Integer, Double> matchScores(MyGraph g_src, MyGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
+	public static MyScoreboard matchScores(MyBaseGraph g_src, MyBaseGraph g_tar, Integer candidate, PropagationData propData, boolean reverse)
 	{
-		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		MyVertexIndex src_ix = g_src.vertexIndex();
+		MyVertexIndex tar_ix = g_tar.vertexIndex();
+		MyScoreboard scores = MyScoreboard.ofThread(reverse ? src_ix.size() : tar_ix.size());
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
 		
 		if(!reverse)
 		{
 			// Get scores for mapped neighbors of candidate
-			for(Integer nbr : g_src.neighborsOf(candidate))
+			g_src.neighborsAt(src_ix.indexOf(candidate), nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isMapped(nbr))
+				int mapped_ix = propData.matches.targetAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				if(!g_tar.vertexSet().contains(propData.matches.get(nbr)))
-					System.out.println(propData.matches.get(nbr));
-				for(Integer nbr2 : g_tar.neighborsOf(propData.matches.get(nbr)))
-					if(!propData.matches.isReverseMapped(nbr2))
+				g_tar.neighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isReverseMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_tar.degreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_tar.degreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 		}
 		else
 		{
 			// Get scores for mapped neighbors of candidate
-			for(Integer nbr : g_tar.neighborsOf(candidate))
+			g_tar.neighborsAt(tar_ix.indexOf(candidate), nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
 			{
-				if(!propData.matches.isReverseMapped(nbr))
+				int mapped_ix = propData.matches.sourceAt(nbrs.array[k]);
+				if(mapped_ix < 0)
 					continue;
-				for(Integer nbr2 : g_src.neighborsOf(propData.matches.getReverse(nbr)))
-					if(!propData.matches.isMapped(nbr2))
+				g_src.neighborsAt(mapped_ix, nbrs2);
+				for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				{
+					if(!propData.matches.isMappedAt(nbrs2.array[k2]))
 					{
-						if(!scores.containsKey(nbr2))
-							scores.put(nbr2, 0.0);
-						scores.put(nbr2, scores.get(nbr2) + (1.0/Math.sqrt(g_src.degreeOf(nbr2))));
+						scores.add(nbrs2.array[k2], 1.0/Math.sqrt(g_src.degreeAt(nbrs2.array[k2])));
 					}
+				}
 			}
 		}
 		
@@ -35,8 +35,10 @@ import mygraph.*;
 public class libSNG
 {	
 	// Propagate step
-	public static void propagateStep(MyGraph g_src, MyGraph g_tar, PropagationData propData)
+	public static void propagateStep(MyBaseGraph g_src, MyBaseGraph g_tar, PropagationData propData)
 	{
+		propData.bind(g_src, g_tar);
+		
 		// Candidate nodes for identification in g_src
 		ArrayList<Integer> C_src = new ArrayList<Integer>();
 		for(Object o : g_src.vertexSet())
@@ -274,65 +276,61 @@ public class libSNG
 	}
 	
 	// Calculate dissims
-	public static void getDissims(MyGraph g_src, MyGraph g_tar, PropagationData propData, ArrayList<Integer> C_src, ArrayList<Integer> C_tar)
+	public static void getDissims(MyBaseGraph g_src, MyBaseGraph g_tar, PropagationData propData, ArrayList<Integer> C_src, ArrayList<Integer> C_tar)
 	{
 		// Init
 		propData.dissims_src = new double[C_tar.size()][C_src.size()];
 		propData.dissims_tar = new double[C_tar.size()][C_src.size()];
 		
-		// Calculate mapped neighbors (mapped to g_src)
-		HashMap<Integer, HashSet> g_tar_mnbrs = new HashMap<Integer, HashSet>();
-		for(Integer v_tar : C_tar)
-			for(Integer nbr : g_tar.neighborsOf(v_tar))
+		// Calculate mapped neighbors (mapped to g_src), as sorted id arrays
+		int[][] g_tar_mnbrs = new int[C_tar.size()][];
+		for(int i = 0; i < C_tar.size(); i++)
+		{
+			MyIntList mnbrs = new MyIntList();
+			for(Integer nbr : g_tar.neighborsOf(C_tar.get(i)))
 				if(propData.matches.isReverseMapped(nbr))
-				{
-					HashSet<Integer> mnbr_set;
-					if(!g_tar_mnbrs.containsKey(v_tar))
-						mnbr_set = new HashSet<Integer>();
-					else
-						mnbr_set = g_tar_mnbrs.get(v_tar);
-					mnbr_set.add(propData.matches.getReverse(nbr));
-					g_tar_mnbrs.put(v_tar, mnbr_set);
-				}
-		HashMap<Integer, HashSet> g_src_mnbrs = new HashMap<Integer, HashSet>();
-		for(Integer v_src : C_src)
-			for(Integer nbr : g_src.neighborsOf(v_src))
+					mnbrs.add(propData.matches.getReverse(nbr));
+			g_tar_mnbrs[i] = sortedUnique(mnbrs);
+		}
+		int[][] g_src_mnbrs = new int[C_src.size()][];
+		for(int i = 0; i < C_src.size(); i++)
+		{
+			MyIntList mnbrs = new MyIntList();
+			for(Integer nbr : g_src.neighborsOf(C_src.get(i)))
 				if(propData.matches.isMapped(nbr))
-				{
-					HashSet<Integer> mnbr_set;
-					if(!g_src_mnbrs.containsKey(v_src))
-						mnbr_set = new HashSet<Integer>();
-					else
-						mnbr_set = g_src_mnbrs.get(v_src);
-					mnbr_set.add(nbr);
-					g_src_mnbrs.put(v_src, mnbr_set);
-				}
+					mnbrs.add(nbr);
+			g_src_mnbrs[i] = sortedUnique(mnbrs);
+		}
 		
-		// Calculate dissims
-		int C_tar_ix = 0, C_src_ix = 0;
-		for(Integer v_tar : C_tar)
+		// Calculate dissims (|A \ B| = |A| - |A & B|)
+		for(int C_tar_ix = 0; C_tar_ix < C_tar.size(); C_tar_ix++)
 		{
-			for(Integer v_src : C_src)
+			int[] tar_mnbrs = g_tar_mnbrs[C_tar_ix];
+			for(int C_src_ix = 0; C_src_ix < C_src.size(); C_src_ix++)
 			{
-				HashSet<Integer> g_src_mnbrs_of, g_tar_mnbrs_of;
-
+				int[] src_mnbrs = g_src_mnbrs[C_src_ix];
+				int common = MyIntersection.count(src_mnbrs, tar_mnbrs);
+				
 				// Forward similarity
-				g_src_mnbrs_of = new HashSet<Integer>(g_src_mnbrs.get(v_src));
-				g_src_mnbrs_of.removeAll(g_tar_mnbrs.get(v_tar));
-				propData.dissims_src[C_tar_ix][C_src_ix] = ((double)g_src_mnbrs_of.size()) / g_src_mnbrs.get(v_src).size();
+				propData.dissims_src[C_tar_ix][C_src_ix] = ((double)(src_mnbrs.length - common)) / src_mnbrs.length;
 				
 				// Reverse similarity
-				g_tar_mnbrs_of = new HashSet<Integer>(g_tar_mnbrs.get(v_tar));
-				g_tar_mnbrs_of.removeAll(g_src_mnbrs.get(v_src));
-				propData.dissims_tar[C_tar_ix][C_src_ix] = ((double)g_tar_mnbrs_of.size()) / g_tar_mnbrs.get(v_tar).size();
-				
-				C_src_ix++;
+				propData.dissims_tar[C_tar_ix][C_src_ix] = ((double)(tar_mnbrs.length - common)) / tar_mnbrs.length;
 			}
-			C_src_ix = 0;
-			C_tar_ix++;
 		}
 	}
 	
+	// Sorted copy of the items without duplicates
+	private static int[] sortedUnique(MyIntList l)
+	{
+		Arrays.sort(l.items, 0, l.size);
+		int n = 0;
+		for(int k = 0; k < l.size; k++)
+			if(n == 0 || l.items[k] != l.items[n-1])
+				l.items[n++] = l.items[k];
+		return Arrays.copyOf(l.items, n);
+	}
+	
 	// Eccentricity calculation
 	public static double eccentricity(double item, double[] items)
 	{
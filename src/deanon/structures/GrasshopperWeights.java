@@ -0,0 +1,112 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package deanon.structures;
+
+import java.util.Arrays;
+
+import mygraph.MyBaseGraph;
+import mygraph.MyIntList;
+import mygraph.MyIntSlice;
+import mygraph.MyVertexIndex;
+
+// Grasshopper weights of the vertices (indexed by the dense vertex indexes), kept up to date between steps
+//   - a mapped source v and its image both weigh (1 + consistent edges of v) / sqrt(d_src * d_tar),
+//     where an edge (v, u) is consistent if u is mapped and the images of v and u are adjacent;
+//     all other vertices weigh 1.0
+//   - a changed match only changes the weights of its source and of the neighbors of that source,
+//     so only these are computed again from the match changes since the last update
+public class GrasshopperWeights
+{
+	public MyBaseGraph g_src, g_tar;
+	private MyVertexIndex src_ix, tar_ix;
+	public double[] src_ws, tar_ws;
+	// Matches the weights belong to (a snapshot)
+	private Matches matches;
+
+	public GrasshopperWeights(MyBaseGraph g_src, MyBaseGraph g_tar)
+	{
+		this.g_src = g_src;
+		this.g_tar = g_tar;
+		src_ix = g_src.vertexIndex();
+		tar_ix = g_tar.vertexIndex();
+		src_ws = new double[src_ix.size()];
+		Arrays.fill(src_ws, 1.0);
+		tar_ws = new double[tar_ix.size()];
+		Arrays.fill(tar_ws, 1.0);
+		matches = new Matches();
+		matches.bind(src_ix, tar_ix);
+	}
+
+	// Same graphs, with the same vertex indexes (the matches are compared by index)
+	public boolean belongsTo(MyBaseGraph g_src, MyBaseGraph g_tar)
+	{
+		return this.g_src == g_src && this.g_tar == g_tar && src_ix == g_src.vertexIndex() && tar_ix == g_tar.vertexIndex();
+	}
+
+	public void update(Matches current)
+	{
+		MyIntList changed = current.changedSources(matches);
+		if(changed.size == 0)
+			return;
+
+		// Reset the changed sources and their former images, collect the sources to weigh again
+		boolean[] affected = new boolean[src_ws.length];
+		MyIntList todo = new MyIntList();
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int i = 0; i < changed.size; i++)
+		{
+			int v_ix = changed.items[i];
+			int former = matches.targetAt(v_ix);
+			if(former >= 0)
+				tar_ws[former] = 1.0;
+			src_ws[v_ix] = 1.0;
+			if(!affected[v_ix])
+			{
+				affected[v_ix] = true;
+				todo.add(v_ix);
+			}
+			g_src.neighborsAt(v_ix, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
+				if(!affected[nbrs.array[k]])
+				{
+					affected[nbrs.array[k]] = true;
+					todo.add(nbrs.array[k]);
+				}
+		}
+
+		for(int i = 0; i < todo.size; i++)
+			weigh(current, todo.items[i], nbrs);
+		matches = current.snapshot();
+	}
+
+	private void weigh(Matches current, int v_ix, MyIntSlice nbrs)
+	{
+		int tar_v_ix = current.targetAt(v_ix);
+		if(tar_v_ix < 0)
+			return;
+
+		// Consistent edges
+		int consistent = 0;
+		g_src.neighborsAt(v_ix, nbrs);
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			int mapped_ix = current.targetAt(nbrs.array[k]);
+			if(mapped_ix >= 0 && g_tar.hasEdge(tar_v_ix, mapped_ix))
+				consistent++;
+		}
+
+		// Normalize
+		double d1 = g_src.degreeAt(v_ix);
+		double d2 = g_tar.degreeAt(tar_v_ix);
+		src_ws[v_ix] = (1.0 + consistent) / Math.sqrt(d1 * d2);
+		tar_ws[tar_v_ix] = src_ws[v_ix];
+	}
+}
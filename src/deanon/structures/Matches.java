@@ -10,59 +10,237 @@
 * */
 package deanon.structures;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+import mygraph.MyIntList;
+import mygraph.MyVertexIndex;
+
+// Matches between source and target vertices
+//   - bound to the vertex indexes of the source and target graph: both directions are int arrays
+//     of dense indexes (-1 if unmapped), so the scoring loops need no hashing, boxing or locking
+//   - matches with a vertex outside of the bound indexes (any int id) are kept in maps by id,
+//     and the indexed side is marked as mapped outside
+//   - ids are translated only at the id based methods, the *At methods take and return dense indexes
+//   - snapshots share the arrays and maps, the first write on either side copies them
 public class Matches
 {
-	  public Map<Integer, Integer> forward;
-	  public Map<Integer, Integer> reverse;
-
-	  public Matches()
-	  {
-		  forward = new Hashtable<Integer, Integer>();
-		  reverse = new Hashtable<Integer, Integer>();
-	  }
-	  
-	  public void add(Integer v1, Integer v2)
-	  {
-		  // Return if existing match
-		  if(forward.containsKey(v1) && forward.get(v1).equals(v2) && reverse.containsKey(v2) && reverse.get(v2).equals(v1))
-			  return;
-		  
-		  // Remove existing hits in order to avoid duplicates
-		  if(reverse.containsKey(v2))
-			  forward.remove(reverse.get(v2));
-		  if(forward.containsKey(v1))
-			  reverse.remove(forward.get(v1));
-		  
-		  // Register matching
-		  forward.put(v1, v2);
-		  reverse.put(v2, v1);
-	  }
-
-	  public Integer get(Integer key)
-	  {
-		  return forward.get(key);
-	  }
-
-	  public Integer getReverse(Integer key)
-	  {
-	    return reverse.get(key);
-	  }
-	  
-	  public boolean isMapped(Integer key)
-	  {
-		  return forward.containsKey(key);
-	  }
-	  
-	  public boolean isReverseMapped(Integer value)
-	  {
-		  return reverse.containsKey(value);
-	  }
-	  
-	  public int size()
-	  {
-		  return forward.size();
-	  }
+	private static final int NONE = -1;
+	// Mapped to a vertex outside of the other index (the pair is in the maps)
+	private static final int OUTSIDE = -2;
+
+	private MyVertexIndex src_ix = new MyVertexIndex(new int[0]);
+	private MyVertexIndex tar_ix = new MyVertexIndex(new int[0]);
+	private int[] forward = new int[0];
+	private int[] reverse = new int[0];
+	private Map<Integer, Integer> forward_ids = new HashMap<Integer, Integer>();
+	private Map<Integer, Integer> reverse_ids = new HashMap<Integer, Integer>();
+	private int size = 0;
+	// The arrays and maps are shared with a snapshot (copy before writing)
+	private boolean shared = false;
+
+	// Key the matches by the indexes of the graphs (no change if already bound to them)
+	public void bind(MyVertexIndex src_ix, MyVertexIndex tar_ix)
+	{
+		if(this.src_ix == src_ix && this.tar_ix == tar_ix)
+			return;
+		int[] vs = sources();
+		int[] ts = new int[vs.length];
+		for(int i = 0; i < vs.length; i++)
+			ts[i] = get(vs[i]);
+
+		this.src_ix = src_ix;
+		this.tar_ix = tar_ix;
+		forward = new int[src_ix.size()];
+		reverse = new int[tar_ix.size()];
+		Arrays.fill(forward, NONE);
+		Arrays.fill(reverse, NONE);
+		forward_ids = new HashMap<Integer, Integer>();
+		reverse_ids = new HashMap<Integer, Integer>();
+		shared = false;
+		for(int i = 0; i < vs.length; i++)
+			link(vs[i], ts[i]);
+	}
+
+	public void add(int v1, int v2)
+	{
+		// Return if existing match
+		Integer v = get(v1);
+		if(v != null && v == v2)
+			return;
+		own();
+
+		// Remove existing hits in order to avoid duplicates
+		Integer v1_old = getReverse(v2);
+		if(v1_old != null)
+		{
+			unlink(v1_old, v2);
+			size--;
+		}
+		if(v != null)
+		{
+			unlink(v1, v);
+			size--;
+		}
+
+		// Register matching
+		link(v1, v2);
+		size++;
+	}
+
+	private void link(int v1, int v2)
+	{
+		int s = src_ix.indexOf(v1);
+		int t = tar_ix.indexOf(v2);
+		if(s >= 0 && t >= 0)
+		{
+			forward[s] = t;
+			reverse[t] = s;
+			return;
+		}
+		forward_ids.put(v1, v2);
+		reverse_ids.put(v2, v1);
+		if(s >= 0)
+			forward[s] = OUTSIDE;
+		if(t >= 0)
+			reverse[t] = OUTSIDE;
+	}
+
+	private void unlink(int v1, int v2)
+	{
+		int s = src_ix.indexOf(v1);
+		int t = tar_ix.indexOf(v2);
+		if(s >= 0)
+			forward[s] = NONE;
+		if(t >= 0)
+			reverse[t] = NONE;
+		if(s < 0 || t < 0)
+		{
+			forward_ids.remove(v1);
+			reverse_ids.remove(v2);
+		}
+	}
+
+	// Target index of a source index (-1 if unmapped or mapped outside of the target index)
+	public int targetAt(int s)
+	{
+		return forward[s] < 0 ? NONE : forward[s];
+	}
+
+	// Source index of a target index (-1 if unmapped or mapped outside of the source index)
+	public int sourceAt(int t)
+	{
+		return reverse[t] < 0 ? NONE : reverse[t];
+	}
+
+	public boolean isMappedAt(int s)
+	{
+		return forward[s] != NONE;
+	}
+
+	public boolean isReverseMappedAt(int t)
+	{
+		return reverse[t] != NONE;
+	}
+
+	public Integer get(int key)
+	{
+		int s = src_ix.indexOf(key);
+		if(s >= 0 && forward[s] >= 0)
+			return tar_ix.idOf(forward[s]);
+		if(s >= 0 && forward[s] == NONE)
+			return null;
+		return forward_ids.get(key);
+	}
+
+	public Integer getReverse(int key)
+	{
+		int t = tar_ix.indexOf(key);
+		if(t >= 0 && reverse[t] >= 0)
+			return src_ix.idOf(reverse[t]);
+		if(t >= 0 && reverse[t] == NONE)
+			return null;
+		return reverse_ids.get(key);
+	}
+
+	public boolean isMapped(int key)
+	{
+		return get(key) != null;
+	}
+
+	public boolean isReverseMapped(int value)
+	{
+		return getReverse(value) != null;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	// Mapped sources in increasing id order
+	public int[] sources()
+	{
+		MyIntList vs = new MyIntList(Math.max(size, 1));
+		for(int s = 0; s < forward.length; s++)
+			if(forward[s] >= 0)
+				vs.add(src_ix.idOf(s));
+		for(Integer v : forward_ids.keySet())
+			vs.add(v);
+		int[] a = vs.toArray();
+		Arrays.sort(a);
+		return a;
+	}
+
+	// Source indexes whose target differs from the one in the given matches (mapped or unmapped since)
+	//   - both have to be bound to the same indexes
+	public MyIntList changedSources(Matches before)
+	{
+		if(src_ix != before.src_ix || tar_ix != before.tar_ix)
+			throw new IllegalArgumentException("matches bound to different vertex indexes");
+		MyIntList ss = new MyIntList();
+		if(forward == before.forward && forward_ids == before.forward_ids)
+			return ss;
+		for(int s = 0; s < forward.length; s++)
+		{
+			if(forward[s] != before.forward[s])
+				ss.add(s);
+			else if(forward[s] == OUTSIDE && !get(src_ix.idOf(s)).equals(before.get(src_ix.idOf(s))))
+				ss.add(s);
+		}
+		return ss;
+	}
+
+	// Copy of the current matches in O(1) (the arrays and maps are copied at the first write on either side)
+	public Matches snapshot()
+	{
+		Matches m = new Matches();
+		m.assign(this);
+		return m;
+	}
+
+	// Replace the matches with the ones of m (shared the same way as snapshots)
+	public void assign(Matches m)
+	{
+		src_ix = m.src_ix;
+		tar_ix = m.tar_ix;
+		forward = m.forward;
+		reverse = m.reverse;
+		forward_ids = m.forward_ids;
+		reverse_ids = m.reverse_ids;
+		size = m.size;
+		shared = m.shared = true;
+	}
 
+	private void own()
+	{
+		if(!shared)
+			return;
+		forward = forward.clone();
+		reverse = reverse.clone();
+		forward_ids = new HashMap<Integer, Integer>(forward_ids);
+		reverse_ids = new HashMap<Integer, Integer>(reverse_ids);
+		shared = false;
+	}
 }
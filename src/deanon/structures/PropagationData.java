@@ -14,6 +14,8 @@ package deanon.structures;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import mygraph.MyBaseGraph;
+
 
 public class PropagationData
 {
@@ -27,6 +29,10 @@ public class PropagationData
 	
 	// Grh specific stuff
 	public long last_match_size = 0;
+	public GrasshopperWeights grh_weights = null;
+	
+	// NS09 specific stuff (incremental steps)
+	public PropagationFrontier frontier = null;
 	
 	public PropagationData()
 	{
@@ -35,6 +41,12 @@ public class PropagationData
 		pastCandidates = new TreeSet<String>();
 	}
 	
+	// Key the matches by the vertex indexes of the graphs (called by the steps before any index based lookup)
+	public void bind(MyBaseGraph g_src, MyBaseGraph g_tar)
+	{
+		matches.bind(g_src.vertexIndex(), g_tar.vertexIndex());
+	}
+	
 	public boolean hasConvergence()
 	{
 		return convergence;
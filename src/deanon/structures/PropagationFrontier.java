@@ -0,0 +1,134 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package deanon.structures;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import mygraph.MyBaseGraph;
+import mygraph.MyIntList;
+
+// Sources to re-score in incremental propagation steps, with the cached choices of the last scoring
+//   - sources are scanned in the order of g_src.vertexSet(), by their position in that order
+//   - sources marked ahead of the current position are scored in the same step (as a full scan would),
+//     the others in the next step
+public class PropagationFrontier
+{
+	// State belongs to these graphs and matches (a different match count means outside changes)
+	public MyBaseGraph g_src, g_tar;
+	public Matches matches;
+	public int match_count;
+
+	// Source index at each scan position, and the other way round
+	public int[] order;
+	public int[] pos;
+	// Positions to score in this and in the next step
+	public BitSet pending;
+	public BitSet next;
+
+	// Forward choice of each source (target index, -1 if none), stale if dirty
+	public int[] forward;
+	public boolean[] forward_dirty;
+	// Reverse choices of the targets (kept across steps, forgotten when touched)
+	public ReverseChoices choices;
+	// Sources whose forward choice was the given target (may hold outdated entries)
+	private MyIntList[] waiting;
+
+	public PropagationFrontier(MyBaseGraph g_src, MyBaseGraph g_tar, Matches matches, ReverseChoices choices)
+	{
+		this.g_src = g_src;
+		this.g_tar = g_tar;
+		this.matches = matches;
+		this.choices = choices;
+		match_count = matches.size();
+
+		int n = g_src.vertexIndex().size();
+		int m = g_tar.vertexIndex().size();
+		order = new int[n];
+		pos = new int[n];
+		int p = 0;
+		for(Object v : g_src.vertexSet())
+		{
+			int ix = g_src.vertexIndex().indexOf(v);
+			order[p] = ix;
+			pos[ix] = p++;
+		}
+
+		// Everything is scored in the first step
+		pending = new BitSet(n);
+		pending.set(0, n);
+		next = new BitSet(n);
+		forward = new int[n];
+		forward_dirty = new boolean[n];
+		Arrays.fill(forward, -1);
+		Arrays.fill(forward_dirty, true);
+		waiting = new MyIntList[m];
+	}
+
+	public boolean belongsTo(MyBaseGraph g_src, MyBaseGraph g_tar, Matches matches)
+	{
+		return this.g_src == g_src && this.g_tar == g_tar && this.matches == matches && match_count == matches.size();
+	}
+
+	public void setForward(int s, int t)
+	{
+		forward_dirty[s] = false;
+		if(t >= 0 && t != forward[s])
+		{
+			if(waiting[t] == null)
+				waiting[t] = new MyIntList(4);
+			waiting[t].add(s);
+		}
+		forward[s] = t;
+	}
+
+	// The forward scores of a source changed
+	public void touchSource(int s, int current)
+	{
+		forward_dirty[s] = true;
+		schedule(s, current);
+	}
+
+	// The reverse scores of a target changed: the sources choosing it are checked again
+	public void touchTarget(int t, int current)
+	{
+		choices.forget(t);
+		MyIntList ws = waiting[t];
+		if(ws == null)
+			return;
+		int c = 0;
+		for(int i = 0; i < ws.size; i++)
+		{
+			int s = ws.items[i];
+			if(forward[s] != t)
+				continue;
+			ws.items[c++] = s;
+			schedule(s, current);
+		}
+		ws.size = c;
+	}
+
+	private void schedule(int s, int current)
+	{
+		if(pos[s] > current)
+			pending.set(pos[s]);
+		else
+			next.set(pos[s]);
+	}
+
+	// Step done: the next one scores what was marked for it
+	public void advance()
+	{
+		pending = next;
+		next = new BitSet(order.length);
+		match_count = matches.size();
+	}
+}
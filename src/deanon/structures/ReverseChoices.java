@@ -0,0 +1,113 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package deanon.structures;
+
+import java.util.Arrays;
+
+import mygraph.MyBaseGraph;
+import mygraph.MyIntSlice;
+import mygraph.MyScoreboard;
+
+// Forward and reverse choices of the propagation algorithms (ns09, dns09, blb), with their own scores
+//   - the reverse choice of a target (source index, -1 if none) is kept until a new match changes its reverse scores
+//   - only cached if choices are deterministic (Theta > 0, ties are rejected), and unless the choices are shared
+//     by threads (then every choice is scored again)
+public class ReverseChoices
+{
+	private static final int UNKNOWN = -2;
+
+	public interface Scorer
+	{
+		// Scores of the targets of a source (of the sources of a target if reverse), by dense index
+		public MyScoreboard matchScores(Integer candidate, PropagationData propData, boolean reverse);
+	}
+
+	private final MyBaseGraph g_src, g_tar;
+	private final Scorer scorer;
+	private final double theta;
+	// Cached reverse choices (null if not cached)
+	private final int[] choice;
+
+	public ReverseChoices(MyBaseGraph g_src, MyBaseGraph g_tar, Scorer scorer, double theta, boolean cached)
+	{
+		this.g_src = g_src;
+		this.g_tar = g_tar;
+		this.scorer = scorer;
+		this.theta = theta;
+		if(cached && theta > 0)
+		{
+			choice = new int[g_tar.vertexIndex().size()];
+			Arrays.fill(choice, UNKNOWN);
+		}
+		else
+			choice = null;
+	}
+
+	// Forward choice of a source (target index, -1 if none)
+	public int forward(Integer source, PropagationData propData)
+	{
+		return scorer.matchScores(source, propData, false).pick(theta);
+	}
+
+	// Reverse choice of a target index (source index, -1 if none)
+	public int reverse(int t, PropagationData propData)
+	{
+		if(choice == null)
+			return scorer.matchScores(g_tar.vertexIndex().idOf(t), propData, true).pick(theta);
+		if(choice[t] == UNKNOWN)
+			choice[t] = scorer.matchScores(g_tar.vertexIndex().idOf(t), propData, true).pick(theta);
+		return choice[t];
+	}
+
+	// Target of a source if the forward and reverse choices agree (or null)
+	public Integer matchOf(Integer source, PropagationData propData)
+	{
+		int t = forward(source, propData);
+		if(t < 0)
+			return null;
+		int s = reverse(t, propData);
+		if(s < 0 || g_src.vertexIndex().idOf(s) != source.intValue())
+			return null;
+		return g_tar.vertexIndex().idOf(t);
+	}
+
+	// The reverse scores of a target changed
+	public void forget(int t)
+	{
+		if(choice != null)
+			choice[t] = UNKNOWN;
+	}
+
+	// The new match (s1, t1) changes the reverse scores of
+	//   - the neighbors of t1 (it is a new reverse mapped neighbor)
+	//   - the targets around the images of the mapped neighbors of s1 (s1 is no longer a candidate)
+	public void invalidate(Matches matches, int s1, int t1)
+	{
+		if(choice == null)
+			return;
+		MyIntSlice nbrs = new MyIntSlice(), nbrs2 = new MyIntSlice();
+
+		g_tar.neighborsAt(t1, nbrs);
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			choice[nbrs.array[k]] = UNKNOWN;
+
+		g_src.neighborsAt(s1, nbrs);
+		for(int k = nbrs.from; k < nbrs.to; k++)
+		{
+			int mapped_ix = matches.targetAt(nbrs.array[k]);
+			if(mapped_ix < 0)
+				continue;
+			g_tar.neighborsAt(mapped_ix, nbrs2);
+			for(int k2 = nbrs2.from; k2 < nbrs2.to; k2++)
+				choice[nbrs2.array[k2]] = UNKNOWN;
+		}
+	}
+}
@@ -1,24 +0,0 @@
-/*
-* Structural Anonymity Lab
-* ========================
-*
-* Copyright (c) 2016 Gabor Gulyas
-* Licenced under GNU GPLv3 (see licence.txt)
-*
-* URL:      https://github.com/gaborgulyas/salab
-*
-* */
-package deanon.structures.tuples;
-
-public class DegIx
-{
-	public Integer index;
-	public Integer degree;
-	
-	public DegIx(Integer v, Integer deg)
-	{
-		index = new Integer(v);
-		degree = new Integer(deg);
-	}
-	
-}
@@ -12,6 +12,7 @@ package mygraph;
 
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.function.IntConsumer;
 import org.jgrapht.Graph;
 
 public interface MyBaseGraph extends Graph
@@ -31,4 +32,22 @@ public interface MyBaseGraph extends Graph
 	public MyBaseGraph selfcopy();
 	
 	public int degreeOf(Integer v);
+	
+	// Dense 0..n-1 indexes of the vertices
+	public MyVertexIndex vertexIndex();
+	
+	// Neighbor access by dense indexes (no allocation)
+	//   - degreeAt is the degree like degreeOf (in+out in directed graphs), which is not the length of the
+	//     neighborsAt row there (mutual edges are listed once)
+	public int degreeAt(int ix);
+	
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice);
+	
+	public void forEachNeighbor(int ix, IntConsumer action);
+	
+	// Adjacency of two dense indexes (either direction in directed graphs, like neighborsAt)
+	public boolean hasEdge(int ix1, int ix2);
+	
+	// Vertices in decreasing degree order (kept until the graph changes)
+	public MyDegreeIndex degreeIndex();
 }
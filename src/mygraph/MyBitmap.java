@@ -0,0 +1,98 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+
+// Immutable compressed bitmap of non-negative ints (in the style of roaring bitmaps)
+//   - values are split by their high 16 bits into chunks
+//   - a chunk is a sorted array of the low 16 bits (up to 4096 values, 2 bytes each),
+//     or a plain bitmap of 2^16 bits (8KB) if it holds more values
+//   - chunks are addressed directly by the high bits, so lookups take constant time
+public class MyBitmap
+{
+	private static final int ARRAY_MAX = 4096;
+
+	private final char[][] arrays;
+	private final long[][] bits;
+	private final int size;
+
+	// Bitmap of the sorted, unique values a[from..to)
+	public MyBitmap(int[] a, int from, int to)
+	{
+		size = to - from;
+		int chunks = size == 0 ? 0 : (a[to-1] >>> 16) + 1;
+		arrays = new char[chunks][];
+		bits = new long[chunks][];
+
+		int k = from;
+		while(k < to)
+		{
+			int hi = a[k] >>> 16;
+			int end = k;
+			while(end < to && (a[end] >>> 16) == hi)
+				end++;
+			if(end - k > ARRAY_MAX)
+			{
+				long[] b = new long[1 << 10];
+				for(int i = k; i < end; i++)
+					b[(a[i] & 0xffff) >>> 6] |= 1L << a[i];
+				bits[hi] = b;
+			}
+			else
+			{
+				char[] c = new char[end - k];
+				for(int i = k; i < end; i++)
+					c[i-k] = (char)a[i];
+				arrays[hi] = c;
+			}
+			k = end;
+		}
+	}
+
+	public MyBitmap(MyIntSlice slice)
+	{
+		this(slice.array, slice.from, slice.to);
+	}
+
+	public boolean contains(int v)
+	{
+		if(v < 0)
+			return false;
+		int hi = v >>> 16;
+		if(hi >= bits.length)
+			return false;
+		long[] b = bits[hi];
+		if(b != null)
+			return (b[(v & 0xffff) >>> 6] & (1L << v)) != 0;
+		char[] c = arrays[hi];
+		return c != null && Arrays.binarySearch(c, (char)v) >= 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	// Approximate memory use (bytes)
+	public long bytes()
+	{
+		long bytes = 16L * bits.length;
+		for(int i = 0; i < bits.length; i++)
+		{
+			if(bits[i] != null)
+				bytes += 8L * bits[i].length;
+			else if(arrays[i] != null)
+				bytes += 2L * arrays[i].length;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,703 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+import org.jgrapht.EdgeFactory;
+import org.jgrapht.graph.ClassBasedEdgeFactory;
+
+// Immutable undirected graph in compressed sparse row (CSR) layout:
+//   vertex ids[i] has the (sorted) neighbor indexes targets[offsets[i]..offsets[i+1])
+//   - apart from building, the rows are only accessed through degreeAt/neighborsAt,
+//     so subclasses may store them elsewhere (see MyOffHeapCSRGraph)
+public class MyCSRGraph implements MyBaseGraph
+{
+	protected static final String IMMUTABLE = "MyCSRGraph is immutable";
+
+	protected MyVertexIndex index = new MyVertexIndex(new int[0]);
+	protected int[] ids = new int[0];
+	protected int[] offsets = new int[1];
+	protected int[] targets = new int[0];
+	// Bitmap rows of the hubs (built on first use)
+	private volatile MyHubBitmaps hubs = null;
+	// Degree order of the vertices (built on first use)
+	private volatile MyDegreeIndex degree_index = null;
+
+	/*
+	 * Constructors
+	 * */
+	public MyCSRGraph()
+	{
+	}
+
+	public MyCSRGraph(String path)
+	{
+		this.loadFromTGF(path);
+	}
+
+	// Compact copy of an arbitrary graph
+	public MyCSRGraph(MyBaseGraph g)
+	{
+		this.copyFrom(g);
+	}
+
+	// Build from the vertices and edges of another graph
+	protected void copyFrom(MyBaseGraph g)
+	{
+		MyIntList vs = new MyIntList(g.vertexSet().size());
+		for(Object o : g.vertexSet())
+			vs.add((Integer)o);
+		MyIntList es = new MyIntList(2*g.edgeSet().size());
+		for(Object o : g.edgeSet())
+		{
+			MyEdge e = (MyEdge)o;
+			es.add(e.source());
+			es.add(e.target());
+		}
+		build(vs, es);
+	}
+
+	// Build the arrays from a vertex list and (source, target) edge pairs
+	protected void build(MyIntList vs, MyIntList es)
+	{
+		// Vertex ids: sorted and unique
+		int[] all = new int[MyIntList.checkedSize((long)vs.size + es.size)];
+		System.arraycopy(vs.items, 0, all, 0, vs.size);
+		System.arraycopy(es.items, 0, all, vs.size, es.size);
+		Arrays.sort(all);
+		int n = 0;
+		for(int i = 0; i < all.length; i++)
+			if(i == 0 || all[i] != all[i-1])
+				all[n++] = all[i];
+		ids = Arrays.copyOf(all, n);
+		index = new MyVertexIndex(ids);
+		all = null;
+
+		// Map edge endpoints to indexes and count degrees
+		int[] ix = new int[es.size];
+		int[] deg = new int[n+1];
+		for(int i = 0; i < es.size; i += 2)
+		{
+			ix[i] = index.indexOf(es.items[i]);
+			ix[i+1] = index.indexOf(es.items[i+1]);
+			if(ix[i] == ix[i+1])
+				continue;
+			deg[ix[i]]++;
+			deg[ix[i+1]]++;
+		}
+
+		// Fill adjacency (both directions)
+		int[] offs = new int[n+1];
+		for(int i = 0; i < n; i++)
+			offs[i+1] = offs[i] + deg[i];
+		int[] tars = new int[offs[n]];
+		int[] pos = Arrays.copyOf(offs, n);
+		for(int i = 0; i < ix.length; i += 2)
+		{
+			if(ix[i] == ix[i+1])
+				continue;
+			tars[pos[ix[i]]++] = ix[i+1];
+			tars[pos[ix[i+1]]++] = ix[i];
+		}
+		ix = null;
+		pos = null;
+
+		// Sort neighbor lists and drop duplicate edges
+		offsets = new int[n+1];
+		targets = sortRows(offs, tars, offsets);
+	}
+
+	// Sort the rows tars[offs[i]..offs[i+1]) and drop duplicates
+	//   - the new row boundaries go to offsets_out, returns the (trimmed) targets
+	protected static int[] sortRows(int[] offs, int[] tars, int[] offsets_out)
+	{
+		int w = 0;
+		offsets_out[0] = 0;
+		for(int i = 0; i < offs.length-1; i++)
+		{
+			Arrays.sort(tars, offs[i], offs[i+1]);
+			for(int k = offs[i]; k < offs[i+1]; k++)
+				if(k == offs[i] || tars[k] != tars[k-1])
+					tars[w++] = tars[k];
+			offsets_out[i+1] = w;
+		}
+		return (w == tars.length) ? tars : Arrays.copyOf(tars, w);
+	}
+
+	/*
+	 * Basic functions
+	 * */
+	// Get dense vertex indexes
+	public MyVertexIndex vertexIndex()
+	{
+		return index;
+	}
+
+	// Dense index of a vertex (-1 if missing)
+	public int indexOf(Object v)
+	{
+		return index.indexOf(v);
+	}
+
+	// Get degree of a dense index
+	public int degreeAt(int ix)
+	{
+		return offsets[ix+1]-offsets[ix];
+	}
+
+	// Get sorted neighbor indexes of a dense index
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice)
+	{
+		return slice.set(targets, offsets[ix], offsets[ix+1]);
+	}
+
+	// Length of the neighborsAt row (the degree here, not in directed graphs)
+	protected int rowLength(int ix)
+	{
+		return degreeAt(ix);
+	}
+
+	public void forEachNeighbor(int ix, IntConsumer action)
+	{
+		for(int k = offsets[ix]; k < offsets[ix+1]; k++)
+			action.accept(targets[k]);
+	}
+
+	// Number of stored neighbor entries (twice the number of edges)
+	protected long adjacencySize()
+	{
+		return targets.length;
+	}
+
+	// Get degree of a node
+	public int degreeOf(Integer v)
+	{
+		int ix = indexOf(v);
+		if(ix < 0)
+			throw new IllegalArgumentException("no such vertex in graph");
+		return degreeAt(ix);
+	}
+
+	// Get neighbors of a node
+	public SortedSet<Integer> neighborsOf(Integer v)
+	{
+		int ix = indexOf(v);
+		if(ix < 0)
+			throw new IllegalArgumentException("no such vertex in graph");
+		SortedSet<Integer> vs = new TreeSet<Integer>();
+		MyIntSlice nbrs = neighborsAt(ix, new MyIntSlice());
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			vs.add(ids[nbrs.array[k]]);
+		return vs;
+	}
+
+	// Check for adjacency of two dense indexes (false for missing or equal ones)
+	public boolean hasEdge(int ix1, int ix2)
+	{
+		if(ix1 < 0 || ix2 < 0 || ix1 == ix2)
+			return false;
+		return adjacentAt(ix1, ix2);
+	}
+
+	// Check for an edge between two dense indexes
+	protected boolean hasEdgeAt(int ix1, int ix2)
+	{
+		return adjacentAt(ix1, ix2);
+	}
+
+	// Bitmap lookup if the larger one is a hub, binary search in the smaller row otherwise
+	protected boolean adjacentAt(int ix1, int ix2)
+	{
+		int d1 = rowLength(ix1), d2 = rowLength(ix2);
+		if(d1 > d2)
+		{
+			int tmp = ix1;
+			ix1 = ix2;
+			ix2 = tmp;
+		}
+		if(Math.max(d1, d2) >= MyHubBitmaps.HUB_DEGREE)
+		{
+			MyBitmap row = hubs().rowOf(ix2);
+			if(row != null)
+				return row.contains(ix1);
+		}
+		return neighborsAt(ix1, new MyIntSlice()).contains(ix2);
+	}
+
+	protected MyHubBitmaps hubs()
+	{
+		MyHubBitmaps h = hubs;
+		if(h == null)
+		{
+			synchronized(this)
+			{
+				if(hubs == null)
+					hubs = new MyHubBitmaps(this);
+				h = hubs;
+			}
+		}
+		return h;
+	}
+
+	public MyDegreeIndex degreeIndex()
+	{
+		return degreeIndex(null);
+	}
+
+	// Ties are resolved by the given vertex order (of the first call)
+	protected MyDegreeIndex degreeIndex(Collection<?> vertex_order)
+	{
+		MyDegreeIndex di = degree_index;
+		if(di == null)
+		{
+			synchronized(this)
+			{
+				if(degree_index == null)
+					degree_index = new MyDegreeIndex(this, vertex_order);
+				di = degree_index;
+			}
+		}
+		return di;
+	}
+
+	// Membership of the largest component by dense index, ties are resolved by the
+	// iteration order of the given vertices (all vertices of the graph, or null for index order)
+	protected boolean[] largestComponent(Collection<?> vertex_order)
+	{
+		MyComponents cc = new MyComponents(this);
+		int largest = cc.largest(vertex_order);
+		boolean[] keep = new boolean[ids.length];
+		for(int i = 0; i < ids.length; i++)
+			keep[i] = cc.labels[i] == largest;
+		return keep;
+	}
+
+	// Get largest connected component
+	public Set<Integer> getLargestConnectedComponent()
+	{
+		Set<Integer> lcc = new TreeSet<Integer>();
+		boolean[] keep = largestComponent(null);
+		for(int i = 0; i < ids.length; i++)
+			if(keep[i])
+				lcc.add(ids[i]);
+		return lcc;
+	}
+
+	// Retain only nodes in LCC (rebuilds the arrays instead of deleting)
+	public void retainLargestConnectedComponent()
+	{
+		induce(largestComponent(null));
+	}
+
+	// Restrict the arrays to the given vertices
+	protected void induce(boolean[] keep)
+	{
+		hubs = null;
+		degree_index = null;
+		int[] remap = remapKept(keep);
+		int[] ids2 = new int[remap[remap.length-1]];
+		for(int i = 0; i < ids.length; i++)
+			if(keep[i])
+				ids2[remap[i]] = ids[i];
+		int[] offs2 = new int[ids2.length+1];
+		targets = induceRows(offsets, targets, keep, remap, offs2);
+		offsets = offs2;
+		ids = ids2;
+		index = new MyVertexIndex(ids2);
+	}
+
+	// New indexes of the kept vertices (-1 for dropped ones), the last item is the new size
+	protected static int[] remapKept(boolean[] keep)
+	{
+		int[] remap = new int[keep.length+1];
+		int n2 = 0;
+		for(int i = 0; i < keep.length; i++)
+			remap[i] = keep[i] ? n2++ : -1;
+		remap[keep.length] = n2;
+		return remap;
+	}
+
+	// Restrict the rows to the kept vertices (new row boundaries go to offsets_out)
+	protected static int[] induceRows(int[] offs, int[] tars, boolean[] keep, int[] remap, int[] offsets_out)
+	{
+		int m2 = 0;
+		for(int i = 0; i < keep.length; i++)
+			if(keep[i])
+				for(int k = offs[i]; k < offs[i+1]; k++)
+					if(keep[tars[k]])
+						m2++;
+		int[] tars2 = new int[m2];
+		int w = 0;
+		offsets_out[0] = 0;
+		for(int i = 0; i < keep.length; i++)
+		{
+			if(!keep[i])
+				continue;
+			for(int k = offs[i]; k < offs[i+1]; k++)
+				if(keep[tars[k]])
+					tars2[w++] = remap[tars[k]];
+			offsets_out[remap[i]+1] = w;
+		}
+		return tars2;
+	}
+
+	/*
+	 * IO functions
+	 * */
+	// Read from file
+	public void loadFromTGF(String path)
+	{
+		MyIntList es = new MyTGFReader(path).edges;
+		int n = MyMemory.countVertices(es);
+		MyMemory.report(path, n, es.size/2, MyMemory.csrBytes(n, es.size/2, this instanceof MyDirectedCSRGraph));
+		build(new MyIntList(0), es);
+	}
+
+	// Write to file
+	public void writeToTGF(String path)
+	{
+		try
+		{
+			MyTGFWriter out = new MyTGFWriter(path);
+			MyIntSlice nbrs = new MyIntSlice();
+			for(int i = 0; i < ids.length; i++)
+			{
+				neighborsAt(i, nbrs);
+				for(int k = nbrs.from; k < nbrs.to; k++)
+					if(i < nbrs.array[k])
+						out.edge(ids[i], ids[nbrs.array[k]]);
+			}
+			out.close();
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	// Export subnetwork
+	public MyCSRGraph export(int export_size)
+	{
+		MyCSRGraph sg = shallowCopy();
+		sg.induce(exportKeep(export_size));
+		return sg;
+	}
+
+	// Membership of the vertices reached by exportBFS
+	protected boolean[] exportKeep(int export_size)
+	{
+		MyIntList bfs = exportBFS(export_size);
+		boolean[] keep = new boolean[ids.length];
+		for(int i = 0; i < bfs.size; i++)
+			keep[bfs.items[i]] = true;
+		return keep;
+	}
+
+	// Vertices reached by a BFS from a random node, in order of discovery
+	// (the start and export_size more, if there are that many)
+	protected MyIntList exportBFS(int export_size)
+	{
+		MyIntList queue = new MyIntList(Math.min(ids.length, Math.max(0, export_size)+1));
+		if(ids.length == 0)
+			return queue;
+
+		boolean[] visited = new boolean[ids.length];
+		int head = 0;
+		int start_v = new Random().nextInt(ids.length);
+		MyIntSlice nbrs = new MyIntSlice();
+		queue.add(start_v);
+		visited[start_v] = true;
+		while(head < queue.size && export_size > 0)
+		{
+			neighborsAt(queue.items[head++], nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
+			{
+				int v2 = nbrs.array[k];
+				if(!visited[v2])
+				{
+					visited[v2] = true;
+					queue.add(v2);
+					export_size--;
+				}
+				if(export_size < 0)
+				{
+					head = queue.size;
+					break;
+				}
+			}
+		}
+		return queue;
+	}
+
+	// On-heap copy of the subgraph induced by the kept vertices (rows are read through neighborsAt)
+	protected MyCSRGraph inducedCopy(boolean[] keep)
+	{
+		int[] remap = remapKept(keep);
+		int n2 = remap[remap.length-1];
+		MyCSRGraph g = new MyCSRGraph();
+		g.ids = new int[n2];
+		g.offsets = new int[n2+1];
+		MyIntList tars = new MyIntList();
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int i = 0; i < ids.length; i++)
+			if(keep[i])
+			{
+				g.ids[remap[i]] = ids[i];
+				neighborsAt(i, nbrs);
+				for(int k = nbrs.from; k < nbrs.to; k++)
+					if(keep[nbrs.array[k]])
+						tars.add(remap[nbrs.array[k]]);
+				g.offsets[remap[i]+1] = tars.size;
+			}
+		g.targets = Arrays.copyOf(tars.items, tars.size);
+		g.index = new MyVertexIndex(g.ids);
+		return g;
+	}
+
+	// Copy sharing the (never modified) arrays
+	protected MyCSRGraph shallowCopy()
+	{
+		MyCSRGraph g = new MyCSRGraph();
+		g.ids = ids;
+		g.index = index;
+		g.offsets = offsets;
+		g.targets = targets;
+		return g;
+	}
+
+	// Copy self (CSR graphs are immutable, so the copy is a mutable MyGraph)
+	public MyBaseGraph selfcopy()
+	{
+		MyGraph g = new MyGraph();
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int i = 0; i < ids.length; i++)
+			g.addVertex(ids[i]);
+		for(int i = 0; i < ids.length; i++)
+		{
+			neighborsAt(i, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
+				if(i < nbrs.array[k])
+					g.addEdge(ids[i], ids[nbrs.array[k]]);
+		}
+		return g;
+	}
+
+	/*
+	 * Graph interface
+	 * */
+	public Set getAllEdges(Object v1, Object v2)
+	{
+		int ix1 = indexOf(v1), ix2 = indexOf(v2);
+		if(ix1 < 0 || ix2 < 0)
+			return null;
+		Set<MyEdge> es = new HashSet<MyEdge>();
+		if(ix1 != ix2 && hasEdgeAt(ix1, ix2))
+			es.add(new MyEdge((Integer)v1, (Integer)v2));
+		return es;
+	}
+
+	public Object getEdge(Object v1, Object v2)
+	{
+		if(!containsEdge(v1, v2))
+			return null;
+		return new MyEdge((Integer)v1, (Integer)v2);
+	}
+
+	public EdgeFactory getEdgeFactory()
+	{
+		return new ClassBasedEdgeFactory(MyEdge.class);
+	}
+
+	public Object addEdge(Object v1, Object v2) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean addEdge(Object v1, Object v2, Object e) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean addVertex(Object v) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean removeAllEdges(Collection es) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public Set removeAllEdges(Object v1, Object v2) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean removeAllVertices(Collection vs) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public Object removeEdge(Object v1, Object v2) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean removeEdge(Object e) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean removeVertex(Object v) { throw new UnsupportedOperationException(IMMUTABLE); }
+
+	public boolean containsEdge(Object v1, Object v2)
+	{
+		int ix1 = indexOf(v1), ix2 = indexOf(v2);
+		if(ix1 < 0 || ix2 < 0 || ix1 == ix2)
+			return false;
+		return hasEdgeAt(ix1, ix2);
+	}
+
+	public boolean containsEdge(Object e)
+	{
+		if(!(e instanceof MyEdge))
+			return false;
+		return containsEdge(((MyEdge)e).source(), ((MyEdge)e).target());
+	}
+
+	public boolean containsVertex(Object v)
+	{
+		return indexOf(v) >= 0;
+	}
+
+	// Edges are created on the fly while iterating
+	public Set edgeSet()
+	{
+		return new AbstractSet<MyEdge>()
+		{
+			public int size()
+			{
+				return (int)(adjacencySize()/2);
+			}
+
+			public boolean contains(Object e)
+			{
+				return containsEdge(e);
+			}
+
+			public Iterator<MyEdge> iterator()
+			{
+				return new Iterator<MyEdge>()
+				{
+					private int v = 0, k;
+					private MyIntSlice nbrs = new MyIntSlice();
+
+					{
+						if(ids.length > 0)
+						{
+							neighborsAt(0, nbrs);
+							k = nbrs.from-1;
+							advance();
+						}
+					}
+
+					// Next (v, nbr) pair with v < nbr
+					private void advance()
+					{
+						k++;
+						while(v < ids.length)
+						{
+							while(k < nbrs.to && nbrs.array[k] <= v)
+								k++;
+							if(k < nbrs.to)
+								return;
+							v++;
+							if(v < ids.length)
+							{
+								neighborsAt(v, nbrs);
+								k = nbrs.from;
+							}
+						}
+					}
+
+					public boolean hasNext()
+					{
+						return v < ids.length;
+					}
+
+					public MyEdge next()
+					{
+						if(!hasNext())
+							throw new NoSuchElementException();
+						MyEdge e = new MyEdge(ids[v], ids[nbrs.array[k]]);
+						advance();
+						return e;
+					}
+
+					public void remove()
+					{
+						throw new UnsupportedOperationException(IMMUTABLE);
+					}
+				};
+			}
+		};
+	}
+
+	public Set edgesOf(Object v)
+	{
+		int ix = indexOf(v);
+		if(ix < 0)
+			throw new IllegalArgumentException("no such vertex in graph");
+		Set<MyEdge> es = new LinkedHashSet<MyEdge>();
+		MyIntSlice nbrs = neighborsAt(ix, new MyIntSlice());
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			es.add(new MyEdge((Integer)v, ids[nbrs.array[k]]));
+		return es;
+	}
+
+	// Unmodifiable view on the vertex ids
+	public Set vertexSet()
+	{
+		return new AbstractSet<Integer>()
+		{
+			public int size()
+			{
+				return ids.length;
+			}
+
+			public boolean contains(Object v)
+			{
+				return indexOf(v) >= 0;
+			}
+
+			public Iterator<Integer> iterator()
+			{
+				return new Iterator<Integer>()
+				{
+					private final int[] vs = ids;
+					private int i = 0;
+
+					public boolean hasNext()
+					{
+						return i < vs.length;
+					}
+
+					public Integer next()
+					{
+						if(!hasNext())
+							throw new NoSuchElementException();
+						return vs[i++];
+					}
+
+					public void remove()
+					{
+						throw new UnsupportedOperationException(IMMUTABLE);
+					}
+				};
+			}
+		};
+	}
+
+	public Object getEdgeSource(Object e)
+	{
+		return ((MyEdge)e).source();
+	}
+
+	public Object getEdgeTarget(Object e)
+	{
+		return ((MyEdge)e).target();
+	}
+
+	public double getEdgeWeight(Object e)
+	{
+		return 1.0;
+	}
+
+	public String toString()
+	{
+		return getClass().getSimpleName()+"(|V|="+ids.length+", |E|="+(adjacencySize()/2)+")";
+	}
+}
@@ -0,0 +1,210 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Connected components of a CSR graph (undirected, the union rows for directed graphs)
+//   - lock-free union-find: roots are always linked towards the smaller index,
+//     so each component ends up labeled with its smallest dense index
+//   - the rows are processed in chunks by a thread pool, then the labels are
+//     flattened in parallel and the component sizes counted
+//   - the time spent in each phase is kept for reporting
+public class MyComponents
+{
+	// Number of worker threads
+	public static int THREADS = Runtime.getRuntime().availableProcessors();
+	// Vertices per chunk (smaller graphs are labeled on the calling thread)
+	private static final int CHUNK = 1 << 14;
+
+	public static final String[] PHASES = {"union", "flatten", "count"};
+
+	// Component label (smallest dense index in the component) of each vertex
+	public int[] labels;
+	// Size of each component by label (0 for indexes that are not labels)
+	public int[] sizes;
+	// Number of components and label of the largest one (the smallest label on ties)
+	public int count = 0;
+	public int largest = -1;
+	// Time spent in each phase (ms)
+	public long[] times = new long[PHASES.length];
+	public int threads = 1;
+
+	private final MyCSRGraph g;
+	private final AtomicIntegerArray parent;
+
+	public MyComponents(MyCSRGraph g)
+	{
+		this.g = g;
+		int n = g.vertexSet().size();
+		parent = new AtomicIntegerArray(n);
+		labels = new int[n];
+		sizes = new int[n];
+		if(n == 0)
+			return;
+
+		final int chunks = (n + CHUNK - 1) / CHUNK;
+		threads = Math.max(1, Math.min(THREADS, chunks));
+
+		long t = System.currentTimeMillis();
+		for(int i = 0; i < n; i++)
+			parent.lazySet(i, i);
+		run(chunks, new Phase()
+		{
+			public void process(int from, int to)
+			{
+				MyIntSlice nbrs = new MyIntSlice();
+				for(int v = from; v < to; v++)
+				{
+					MyComponents.this.g.neighborsAt(v, nbrs);
+					for(int k = nbrs.from; k < nbrs.to; k++)
+						if(nbrs.array[k] > v)
+							union(v, nbrs.array[k]);
+				}
+			}
+		});
+		times[0] = System.currentTimeMillis() - t;
+
+		t = System.currentTimeMillis();
+		run(chunks, new Phase()
+		{
+			public void process(int from, int to)
+			{
+				for(int v = from; v < to; v++)
+					labels[v] = find(v);
+			}
+		});
+		times[1] = System.currentTimeMillis() - t;
+
+		t = System.currentTimeMillis();
+		for(int v = 0; v < n; v++)
+			sizes[labels[v]]++;
+		for(int l = 0; l < n; l++)
+			if(sizes[l] > 0)
+			{
+				count++;
+				if(largest < 0 || sizes[l] > sizes[largest])
+					largest = l;
+			}
+		times[2] = System.currentTimeMillis() - t;
+	}
+
+	// Work on the vertex range [from, to)
+	private interface Phase
+	{
+		public void process(int from, int to);
+	}
+
+	// Run a phase over all chunks (inline if there is a single thread)
+	private void run(int chunks, final Phase phase)
+	{
+		final int n = labels.length;
+		if(threads == 1)
+		{
+			phase.process(0, n);
+			return;
+		}
+		try
+		{
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<Object>> parts = new ArrayList<Future<Object>>();
+			for(int c = 0; c < chunks; c++)
+			{
+				final int from = c * CHUNK, to = Math.min(n, from + CHUNK);
+				parts.add(pool.submit(new Callable<Object>()
+				{
+					public Object call()
+					{
+						phase.process(from, to);
+						return null;
+					}
+				}));
+			}
+			pool.shutdown();
+			for(Future<Object> part : parts)
+				part.get();
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	// Root of v, halving the path on the way
+	private int find(int v)
+	{
+		int p = parent.get(v);
+		while(p != v)
+		{
+			int gp = parent.get(p);
+			if(gp != p)
+				parent.compareAndSet(v, p, gp);
+			v = p;
+			p = parent.get(v);
+		}
+		return v;
+	}
+
+	// Link the roots of a and b (the larger one under the smaller one)
+	private void union(int a, int b)
+	{
+		while(true)
+		{
+			a = find(a);
+			b = find(b);
+			if(a == b)
+				return;
+			if(a < b)
+			{
+				int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			if(parent.compareAndSet(a, a, b))
+				return;
+		}
+	}
+
+	// Largest component, on ties the one met first in the given vertex order
+	// (null: the one with the smallest label)
+	public int largest(Collection<?> vertex_order)
+	{
+		if(vertex_order == null || largest < 0)
+			return largest;
+		for(Object v : vertex_order)
+		{
+			int l = labels[g.indexOf(v)];
+			if(sizes[l] == sizes[largest])
+				return l;
+		}
+		return largest;
+	}
+
+	// Number of components of each size
+	public SortedMap<Integer, Integer> sizeDistribution()
+	{
+		SortedMap<Integer, Integer> freqs = new TreeMap<Integer, Integer>();
+		for(int l = 0; l < sizes.length; l++)
+			if(sizes[l] > 0)
+			{
+				Integer c = freqs.get(sizes[l]);
+				freqs.put(sizes[l], c == null ? 1 : c + 1);
+			}
+		return freqs;
+	}
+
+	// Phase timings, e.g. "union: 12 ms, flatten: 3 ms, count: 1 ms (4 threads)"
+	public String timing()
+	{
+		String s = "";
+		for(int i = 0; i < PHASES.length; i++)
+			s += (i > 0 ? ", " : "") + PHASES[i] + ": " + times[i] + " ms";
+		return s + " (" + threads + (threads > 1 ? " threads)" : " thread)");
+	}
+}
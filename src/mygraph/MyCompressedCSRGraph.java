@@ -0,0 +1,203 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// CSR graph with gap encoded rows (read-only, for large source networks)
+//   - each row is: degree, first neighbor relative to the vertex (zigzag), then the
+//     gaps between consecutive neighbors minus one, all as varints (7 bits per byte)
+//   - rows are stored in byte segments of at most 1GB, a row never spans two segments,
+//     so a row is located by its int position and the first vertex of each segment
+//   - neighbor slices are decoded into a buffer owned by the slice
+public class MyCompressedCSRGraph extends MyCSRGraph
+{
+	protected static final String READ_ONLY = "MyCompressedCSRGraph is read-only";
+	private static final int SEGMENT_SIZE = 1 << 30;
+
+	protected byte[][] segments;
+	// First vertex of each segment
+	protected int[] segment_starts;
+	// Start of each row within its segment
+	protected int[] rows;
+	protected long size;
+
+	// Encode the rows of another CSR graph (on-heap, off-heap or mapped)
+	public MyCompressedCSRGraph(MyCSRGraph g)
+	{
+		int n = g.ids.length;
+		ids = g.ids;
+		index = g.index;
+		size = g.adjacencySize();
+		rows = new int[n];
+
+		byte[][] segs = new byte[1][];
+		MyIntList starts = new MyIntList(1);
+		starts.add(0);
+		int seg = 0;
+		byte[] buf = new byte[(int)Math.min(SEGMENT_SIZE, Math.max(1024, size + n))];
+		int pos = 0;
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int i = 0; i < n; i++)
+		{
+			g.neighborsAt(i, nbrs);
+			int deg = nbrs.size();
+			long worst = 5L * (deg + 1);
+			if(pos + worst > SEGMENT_SIZE)
+			{
+				// Close the segment, continue in a new one
+				segs[seg++] = Arrays.copyOf(buf, pos);
+				segs = Arrays.copyOf(segs, seg + 1);
+				starts.add(i);
+				buf = new byte[(int)Math.min(SEGMENT_SIZE, Math.max(1024, worst))];
+				pos = 0;
+			}
+			if(pos + worst > buf.length)
+				buf = Arrays.copyOf(buf, (int)Math.min(SEGMENT_SIZE, Math.max(pos + worst, 2L * buf.length)));
+
+			rows[i] = pos;
+			pos = writeVarint(buf, pos, deg);
+			int prev = 0;
+			for(int k = nbrs.from; k < nbrs.to; k++)
+			{
+				int t = nbrs.array[k];
+				if(k == nbrs.from)
+					pos = writeVarint(buf, pos, ((t - i) << 1) ^ ((t - i) >> 31));
+				else
+					pos = writeVarint(buf, pos, t - prev - 1);
+				prev = t;
+			}
+		}
+		segs[seg] = Arrays.copyOf(buf, pos);
+		segments = segs;
+		segment_starts = Arrays.copyOf(starts.items, starts.size);
+		offsets = null;
+		targets = null;
+	}
+
+	private static int writeVarint(byte[] buf, int pos, int v)
+	{
+		while((v & ~0x7f) != 0)
+		{
+			buf[pos++] = (byte)((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		buf[pos++] = (byte)v;
+		return pos;
+	}
+
+	// Memory used by the encoded rows (bytes)
+	public long encodedBytes()
+	{
+		long bytes = 4L * rows.length;
+		for(int i = 0; i < segments.length; i++)
+			bytes += segments[i].length;
+		return bytes;
+	}
+
+	// Segment holding the row of a vertex
+	private byte[] segmentOf(int ix)
+	{
+		if(segments.length == 1)
+			return segments[0];
+		int s = Arrays.binarySearch(segment_starts, ix);
+		return segments[s >= 0 ? s : -s-2];
+	}
+
+	/*
+	 * Basic functions
+	 * */
+	public int degreeAt(int ix)
+	{
+		byte[] buf = segmentOf(ix);
+		int pos = rows[ix];
+		int v = 0;
+		for(int shift = 0; ; shift += 7)
+		{
+			byte b = buf[pos++];
+			v |= (b & 0x7f) << shift;
+			if(b >= 0)
+				return v;
+		}
+	}
+
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice)
+	{
+		byte[] buf = segmentOf(ix);
+		int pos = rows[ix];
+
+		// Inlined varint decoding: degree, first neighbor, gaps
+		int deg = 0;
+		for(int shift = 0; ; shift += 7)
+		{
+			byte b = buf[pos++];
+			deg |= (b & 0x7f) << shift;
+			if(b >= 0)
+				break;
+		}
+		int[] out = slice.reserve(deg);
+		int prev = 0;
+		for(int k = 0; k < deg; k++)
+		{
+			int v = 0;
+			for(int shift = 0; ; shift += 7)
+			{
+				byte b = buf[pos++];
+				v |= (b & 0x7f) << shift;
+				if(b >= 0)
+					break;
+			}
+			prev = k == 0 ? ix + ((v >>> 1) ^ -(v & 1)) : prev + v + 1;
+			out[k] = prev;
+		}
+		return slice.set(out, 0, deg);
+	}
+
+	public void forEachNeighbor(int ix, IntConsumer action)
+	{
+		MyIntSlice nbrs = neighborsAt(ix, new MyIntSlice());
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			action.accept(nbrs.array[k]);
+	}
+
+	protected long adjacencySize()
+	{
+		return size;
+	}
+
+	// Exports are copied to the heap
+	public MyCSRGraph export(int export_size)
+	{
+		return inducedCopy(exportKeep(export_size));
+	}
+
+	// Changing the layout would need encoding again, export or copy on the heap instead
+	protected void induce(boolean[] keep)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	protected MyCSRGraph shallowCopy()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	public void retainLargestConnectedComponent()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	public void loadFromTGF(String path)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Vertices of a graph in decreasing degree order (built once by counting sort)
+//   - ties are ordered backwards in the given vertex order (decreasing dense index by default),
+//     as a stable ascending sort read from its end would do
+//   - top-k queries walk the order from its start, no sorting per query
+//     (queries on a subset only sort the subset, by the ranks kept with the order)
+public class MyDegreeIndex
+{
+	private final MyVertexIndex index;
+	private final int[] order;
+	// Degree at each rank
+	private final int[] degrees;
+	// Rank of each dense index (inverse of order)
+	private final int[] rank;
+
+	public MyDegreeIndex(MyBaseGraph g)
+	{
+		this(g, null);
+	}
+
+	// Ties follow the iteration order of the given vertices (all vertices of the graph, or null for index order)
+	public MyDegreeIndex(MyBaseGraph g, Collection<?> vertex_order)
+	{
+		index = g.vertexIndex();
+		int n = index.size();
+		int[] ixs = new int[n];
+		int c = 0;
+		if(vertex_order == null)
+			for(c = 0; c < n; c++)
+				ixs[c] = c;
+		else
+			for(Object v : vertex_order)
+				ixs[c++] = index.indexOf(v);
+		int max_deg = 0;
+		for(int i = 0; i < n; i++)
+			max_deg = Math.max(max_deg, g.degreeAt(i));
+
+		// Start of each degree block (higher degrees first)
+		int[] starts = new int[max_deg+2];
+		for(int i = 0; i < n; i++)
+			starts[max_deg-g.degreeAt(i)+1]++;
+		for(int d = 1; d < starts.length; d++)
+			starts[d] += starts[d-1];
+
+		order = new int[n];
+		degrees = new int[n];
+		for(int i = n-1; i >= 0; i--)
+		{
+			int deg = g.degreeAt(ixs[i]);
+			degrees[starts[max_deg-deg]] = deg;
+			order[starts[max_deg-deg]++] = ixs[i];
+		}
+		rank = new int[n];
+		for(int r = 0; r < n; r++)
+			rank[order[r]] = r;
+	}
+
+	public int size()
+	{
+		return order.length;
+	}
+
+	// Dense index of the vertex at the given rank (0 has the highest degree)
+	public int indexAt(int rank)
+	{
+		return order[rank];
+	}
+
+	// The k vertices of the highest degree (at least one)
+	public List<Integer> top(int k)
+	{
+		List<Integer> vs = new ArrayList<Integer>();
+		for(int r = 0; r < order.length; r++)
+		{
+			vs.add(index.idOf(order[r]));
+			if(vs.size() >= k)
+				break;
+		}
+		return vs;
+	}
+
+	// The k vertices of the highest degree among the given ones (at least one),
+	// ties are ordered backwards in the order of the given ones
+	public List<Integer> top(Collection<Integer> among, int k)
+	{
+		// Index and position of the given vertices (sorted by index, so repeated ones are next to each other)
+		long[] keys = new long[among.size()];
+		int c = 0, p = 0;
+		for(Integer v : among)
+		{
+			int ix = index.indexOf(v);
+			if(ix >= 0)
+				keys[c++] = ((long)ix << 32) | p;
+			p++;
+		}
+		Arrays.sort(keys, 0, c);
+
+		// Key by degree block, then backwards by position (the last position of a repeated vertex counts)
+		int[] at = new int[p];
+		int m = 0;
+		for(int i = 0; i < c; i++)
+		{
+			int ix = (int)(keys[i] >>> 32);
+			if(i+1 < c && (int)(keys[i+1] >>> 32) == ix)
+				continue;
+			int pos = (int)keys[i];
+			at[pos] = ix;
+			keys[m++] = ((long)(degrees[0]-degrees[rank[ix]]) << 32) | (p-1-pos);
+		}
+		Arrays.sort(keys, 0, m);
+
+		List<Integer> vs = new ArrayList<Integer>();
+		for(int i = 0; i < m; i++)
+		{
+			vs.add(index.idOf(at[p-1-(int)keys[i]]));
+			if(vs.size() >= k)
+				break;
+		}
+		return vs;
+	}
+
+	// The given share of the vertices with the highest degrees (all vertices if among is null)
+	public List<Integer> topPercent(Collection<Integer> among, double top_percent)
+	{
+		if(among == null)
+			return top((int)(order.length*top_percent));
+		return top(among, (int)(among.size()*top_percent));
+	}
+}
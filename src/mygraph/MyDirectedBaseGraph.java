@@ -0,0 +1,31 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.SortedSet;
+import org.jgrapht.DirectedGraph;
+
+// Common interface of the directed graphs (neighborsOf and degreeOf ignore the directions)
+public interface MyDirectedBaseGraph extends MyBaseGraph, DirectedGraph
+{
+	public SortedSet<Integer> inNeighborsOf(Integer v);
+	
+	public SortedSet<Integer> outNeighborsOf(Integer v);
+	
+	// In/out neighbor access by dense indexes (no allocation)
+	public int inDegreeAt(int ix);
+	
+	public int outDegreeAt(int ix);
+	
+	public MyIntSlice inNeighborsAt(int ix, MyIntSlice slice);
+	
+	public MyIntSlice outNeighborsAt(int ix, MyIntSlice slice);
+}
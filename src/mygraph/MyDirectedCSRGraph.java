@@ -0,0 +1,326 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.*;
+import java.util.*;
+
+// Immutable directed graph in CSR layout
+//   - out-neighbors in out_targets[out_offsets[i]..out_offsets[i+1]), in-neighbors likewise
+//   - the inherited arrays hold the undirected union (neighborsOf, components, export)
+//   - degrees are in+out, as in MyDirectedGraph
+public class MyDirectedCSRGraph extends MyCSRGraph implements MyDirectedBaseGraph
+{
+	protected int[] out_offsets = new int[1];
+	protected int[] out_targets = new int[0];
+	protected int[] in_offsets = new int[1];
+	protected int[] in_targets = new int[0];
+
+	/*
+	 * Constructors
+	 * */
+	public MyDirectedCSRGraph()
+	{
+	}
+
+	public MyDirectedCSRGraph(String path)
+	{
+		this.loadFromTGF(path);
+	}
+
+	// Compact copy of an arbitrary graph (edge directions are kept)
+	public MyDirectedCSRGraph(MyBaseGraph g)
+	{
+		this.copyFrom(g);
+	}
+
+	// Build the union arrays, then the (source, target) ones in both directions
+	protected void build(MyIntList vs, MyIntList es)
+	{
+		super.build(vs, es);
+
+		int n = ids.length;
+		int[] src = new int[es.size/2];
+		int[] tar = new int[es.size/2];
+		int[] out_deg = new int[n];
+		int[] in_deg = new int[n];
+		int m = 0;
+		for(int i = 0; i < es.size; i += 2)
+		{
+			int s = index.indexOf(es.items[i]), t = index.indexOf(es.items[i+1]);
+			if(s == t)
+				continue;
+			src[m] = s;
+			tar[m] = t;
+			out_deg[s]++;
+			in_deg[t]++;
+			m++;
+		}
+
+		out_offsets = new int[n+1];
+		out_targets = fillRows(src, tar, m, out_deg, out_offsets);
+		in_offsets = new int[n+1];
+		in_targets = fillRows(tar, src, m, in_deg, in_offsets);
+	}
+
+	// Sorted, unique rows of the pairs (from[i], to[i])
+	private static int[] fillRows(int[] from, int[] to, int m, int[] deg, int[] offsets_out)
+	{
+		int n = deg.length;
+		int[] offs = new int[n+1];
+		for(int i = 0; i < n; i++)
+			offs[i+1] = offs[i] + deg[i];
+		int[] tars = new int[offs[n]];
+		int[] pos = Arrays.copyOf(offs, n);
+		for(int i = 0; i < m; i++)
+			tars[pos[from[i]]++] = to[i];
+		return sortRows(offs, tars, offsets_out);
+	}
+
+	/*
+	 * Basic functions
+	 * */
+	public int inDegreeAt(int ix)
+	{
+		return in_offsets[ix+1]-in_offsets[ix];
+	}
+
+	public int outDegreeAt(int ix)
+	{
+		return out_offsets[ix+1]-out_offsets[ix];
+	}
+
+	public MyIntSlice inNeighborsAt(int ix, MyIntSlice slice)
+	{
+		return slice.set(in_targets, in_offsets[ix], in_offsets[ix+1]);
+	}
+
+	public MyIntSlice outNeighborsAt(int ix, MyIntSlice slice)
+	{
+		return slice.set(out_targets, out_offsets[ix], out_offsets[ix+1]);
+	}
+
+	// Get degree (in+out) of a dense index (mutual edges count twice, unlike in the neighborsAt row)
+	public int degreeAt(int ix)
+	{
+		return inDegreeAt(ix)+outDegreeAt(ix);
+	}
+
+	// Length of the union row
+	protected int rowLength(int ix)
+	{
+		return offsets[ix+1]-offsets[ix];
+	}
+
+	// Get degree (in+out) of a node
+	public int degreeOf(Integer v)
+	{
+		return degreeAt(vertexAt(v));
+	}
+
+	public int inDegreeOf(Object v)
+	{
+		return inDegreeAt(vertexAt(v));
+	}
+
+	public int outDegreeOf(Object v)
+	{
+		return outDegreeAt(vertexAt(v));
+	}
+
+	// Get in-neighbors of a node
+	public SortedSet<Integer> inNeighborsOf(Integer v)
+	{
+		return idsOf(in_offsets, in_targets, vertexAt(v));
+	}
+
+	// Get out-neighbors of a node
+	public SortedSet<Integer> outNeighborsOf(Integer v)
+	{
+		return idsOf(out_offsets, out_targets, vertexAt(v));
+	}
+
+	// Dense index of an existing vertex
+	private int vertexAt(Object v)
+	{
+		int ix = indexOf(v);
+		if(ix < 0)
+			throw new IllegalArgumentException("no such vertex in graph");
+		return ix;
+	}
+
+	private SortedSet<Integer> idsOf(int[] offs, int[] tars, int ix)
+	{
+		SortedSet<Integer> vs = new TreeSet<Integer>();
+		for(int k = offs[ix]; k < offs[ix+1]; k++)
+			vs.add(ids[tars[k]]);
+		return vs;
+	}
+
+	// Check for an edge from ix1 to ix2
+	protected boolean hasEdgeAt(int ix1, int ix2)
+	{
+		return Arrays.binarySearch(out_targets, out_offsets[ix1], out_offsets[ix1+1], ix2) >= 0;
+	}
+
+	// Restrict all arrays to the given vertices
+	protected void induce(boolean[] keep)
+	{
+		int[] remap = remapKept(keep);
+		int n2 = remap[remap.length-1];
+		int[] out_offs2 = new int[n2+1];
+		out_targets = induceRows(out_offsets, out_targets, keep, remap, out_offs2);
+		out_offsets = out_offs2;
+		int[] in_offs2 = new int[n2+1];
+		in_targets = induceRows(in_offsets, in_targets, keep, remap, in_offs2);
+		in_offsets = in_offs2;
+		super.induce(keep);
+	}
+
+	protected MyCSRGraph shallowCopy()
+	{
+		MyDirectedCSRGraph g = new MyDirectedCSRGraph();
+		g.ids = ids;
+		g.index = index;
+		g.offsets = offsets;
+		g.targets = targets;
+		g.out_offsets = out_offsets;
+		g.out_targets = out_targets;
+		g.in_offsets = in_offsets;
+		g.in_targets = in_targets;
+		return g;
+	}
+
+	/*
+	 * IO functions
+	 * */
+	// Write to file
+	public void writeToTGF(String path)
+	{
+		try
+		{
+			MyTGFWriter out = new MyTGFWriter(path);
+			for(int i = 0; i < ids.length; i++)
+				for(int k = out_offsets[i]; k < out_offsets[i+1]; k++)
+					out.edge(ids[i], ids[out_targets[k]]);
+			out.close();
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	// Export subnetwork
+	public MyDirectedCSRGraph export(int export_size)
+	{
+		return (MyDirectedCSRGraph) super.export(export_size);
+	}
+
+	// Copy self (as a mutable MyDirectedGraph)
+	public MyBaseGraph selfcopy()
+	{
+		MyDirectedGraph g = new MyDirectedGraph();
+		for(int i = 0; i < ids.length; i++)
+			g.addVertex(ids[i]);
+		for(int i = 0; i < ids.length; i++)
+			for(int k = out_offsets[i]; k < out_offsets[i+1]; k++)
+				g.addEdge(ids[i], ids[out_targets[k]]);
+		return g;
+	}
+
+	/*
+	 * Graph interface
+	 * */
+	// Edges are created on the fly while iterating
+	public Set edgeSet()
+	{
+		return new AbstractSet<MyEdge>()
+		{
+			public int size()
+			{
+				return out_targets.length;
+			}
+
+			public boolean contains(Object e)
+			{
+				return containsEdge(e);
+			}
+
+			public Iterator<MyEdge> iterator()
+			{
+				return new Iterator<MyEdge>()
+				{
+					private int v = 0, k = 0;
+
+					{
+						advance();
+					}
+
+					private void advance()
+					{
+						while(v < ids.length && k >= out_offsets[v+1])
+							v++;
+					}
+
+					public boolean hasNext()
+					{
+						return v < ids.length;
+					}
+
+					public MyEdge next()
+					{
+						if(!hasNext())
+							throw new NoSuchElementException();
+						MyEdge e = new MyEdge(ids[v], ids[out_targets[k++]]);
+						advance();
+						return e;
+					}
+
+					public void remove()
+					{
+						throw new UnsupportedOperationException(IMMUTABLE);
+					}
+				};
+			}
+		};
+	}
+
+	public Set edgesOf(Object v)
+	{
+		int ix = vertexAt(v);
+		Set<MyEdge> es = new LinkedHashSet<MyEdge>();
+		for(int k = in_offsets[ix]; k < in_offsets[ix+1]; k++)
+			es.add(new MyEdge(ids[in_targets[k]], (Integer)v));
+		for(int k = out_offsets[ix]; k < out_offsets[ix+1]; k++)
+			es.add(new MyEdge((Integer)v, ids[out_targets[k]]));
+		return es;
+	}
+
+	public Set incomingEdgesOf(Object v)
+	{
+		int ix = vertexAt(v);
+		Set<MyEdge> es = new LinkedHashSet<MyEdge>();
+		for(int k = in_offsets[ix]; k < in_offsets[ix+1]; k++)
+			es.add(new MyEdge(ids[in_targets[k]], (Integer)v));
+		return es;
+	}
+
+	public Set outgoingEdgesOf(Object v)
+	{
+		int ix = vertexAt(v);
+		Set<MyEdge> es = new LinkedHashSet<MyEdge>();
+		for(int k = out_offsets[ix]; k < out_offsets[ix+1]; k++)
+			es.add(new MyEdge((Integer)v, ids[out_targets[k]]));
+		return es;
+	}
+
+	public String toString()
+	{
+		return "MyDirectedCSRGraph(|V|="+ids.length+", |E|="+out_targets.length+")";
+	}
+}
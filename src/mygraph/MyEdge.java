@@ -14,13 +14,39 @@ import org.jgrapht.graph.DefaultEdge;
 
 public class MyEdge extends DefaultEdge
 {
+	// Endpoints of edges that are not owned by a jgrapht graph (e.g., CSR edges)
+	private Integer src = null, tar = null;
+	
+	public MyEdge()
+	{
+		super();
+	}
+	
+	public MyEdge(Integer s, Integer t)
+	{
+		super();
+		src = s;
+		tar = t;
+	}
+	
 	public Integer source()
 	{
+		if(src != null)
+			return src;
 		return (Integer)this.getSource();
 	}
 	
 	public Integer target()
 	{
+		if(tar != null)
+			return tar;
 		return (Integer)this.getTarget();
 	}
+	
+	public String toString()
+	{
+		return "(" + source() + " : " + target() + ")";
+	}
+	
+	private static final long serialVersionUID = 1L;
 }
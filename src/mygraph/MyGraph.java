@@ -12,16 +12,21 @@ package mygraph;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 import org.jgrapht.*;
 import org.jgrapht.graph.*;
-import org.jgrapht.traverse.BreadthFirstIterator;
 
 import deanon.Deanon;
 
 // SimpleGraph<Integer, MyEdge>
 public class MyGraph extends SimpleGraph implements MyBaseGraph
 {
+	// Dense vertex indexes (built at load time, dropped when the vertex set changes)
+	protected volatile MyVertexIndex index = null;
+	// Compact snapshot for index based access (dropped on any change)
+	protected volatile MyCSRGraph snapshot = null;
+	
 	/*
 	 * Constructors
 	 * */
@@ -36,6 +41,123 @@ public class MyGraph extends SimpleGraph implements MyBaseGraph
 		this.loadFromTGF(path);
 	}
 	
+	/*
+	 * Basic functions
+	 * */
+	// Get dense vertex indexes
+	public MyVertexIndex vertexIndex()
+	{
+		MyVertexIndex ix = index;
+		if(ix == null)
+		{
+			synchronized(this)
+			{
+				if(index == null)
+					index = MyVertexIndex.of(this.vertexSet());
+				ix = index;
+			}
+		}
+		return ix;
+	}
+	
+	// Get compact (CSR) snapshot of the current graph
+	//   - the index based methods below go through it: the first call builds a full CSR copy
+	//     (about the size of a +-loaded graph, kept on top of the jgrapht objects),
+	//     and any change of the graph drops it, so the next call copies the whole graph again
+	//   - prefer loading with + (MyCSRGraph) when only the index based access is needed
+	//   - index and snapshot are built once even if threads ask for them at the same time (the graph must
+	//     not change while they read it)
+	public MyCSRGraph compact()
+	{
+		MyCSRGraph c = snapshot;
+		if(c == null)
+		{
+			synchronized(this)
+			{
+				if(snapshot == null)
+					snapshot = new MyCSRGraph(this);
+				c = snapshot;
+			}
+		}
+		return c;
+	}
+	
+	// Index based neighbor access (through the snapshot)
+	public int degreeAt(int ix)
+	{
+		return compact().degreeAt(ix);
+	}
+	
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice)
+	{
+		return compact().neighborsAt(ix, slice);
+	}
+	
+	public void forEachNeighbor(int ix, IntConsumer action)
+	{
+		compact().forEachNeighbor(ix, action);
+	}
+	
+	public boolean hasEdge(int ix1, int ix2)
+	{
+		return compact().hasEdge(ix1, ix2);
+	}
+	
+	// Degree ties are resolved by the vertex set order (as sorting vertexSet() would)
+	public MyDegreeIndex degreeIndex()
+	{
+		return compact().degreeIndex(vertexSet());
+	}
+	
+	/*
+	 * Changes (invalidating index and snapshot)
+	 * */
+	public boolean addVertex(Object v)
+	{
+		boolean added = super.addVertex(v);
+		if(added)
+		{
+			index = null;
+			snapshot = null;
+		}
+		return added;
+	}
+	
+	public boolean removeVertex(Object v)
+	{
+		boolean removed = super.removeVertex(v);
+		if(removed)
+		{
+			index = null;
+			snapshot = null;
+		}
+		return removed;
+	}
+	
+	public Object addEdge(Object v1, Object v2)
+	{
+		snapshot = null;
+		return super.addEdge(v1, v2);
+	}
+	
+	public boolean addEdge(Object v1, Object v2, Object e)
+	{
+		snapshot = null;
+		return super.addEdge(v1, v2, e);
+	}
+	
+	public Object removeEdge(Object v1, Object v2)
+	{
+		snapshot = null;
+		return super.removeEdge(v1, v2);
+	}
+	
+	public boolean removeEdge(Object e)
+	{
+		snapshot = null;
+		return super.removeEdge(e);
+	}
+	
 	/*
 	 * Basic functions
 	 * */
@@ -64,32 +186,27 @@ public class MyGraph extends SimpleGraph implements MyBaseGraph
 	// Get largest connected component
 	public Set<Integer> getLargestConnectedComponent()
 	{
-		Set<Integer> largestConnectedSet = new TreeSet();
-		Set<Integer> connectedSet;
-		List<Integer> vs = new ArrayList(vertexSet());
-		
-		while(vs.size() > 0)
-		{
-			connectedSet = new TreeSet();
-			BreadthFirstIterator<Integer, MyEdge> bfsi = new BreadthFirstIterator<Integer, MyEdge>(this, vs.get(0));
-			while(bfsi.hasNext())
-				connectedSet.add(bfsi.next());
-			if(connectedSet.size() > largestConnectedSet.size())
-				largestConnectedSet = connectedSet;
-			vs.removeAll(connectedSet);
-		}
-		
-		return largestConnectedSet;
+		// Labeled on the snapshot, ties go to the component met first in vertex order
+		MyCSRGraph c = compact();
+		boolean[] keep = c.largestComponent(vertexSet());
+		Set<Integer> lcc = new TreeSet<Integer>();
+		for(int i = 0; i < keep.length; i++)
+			if(keep[i])
+				lcc.add(c.ids[i]);
+		return lcc;
 	}
 	
-	// Retain only nodes in LCC
+	// Retain only nodes in LCC (the rest is removed in one batch, kept vertices stay in order)
 	public void retainLargestConnectedComponent()
 	{
-		Set<Integer> lcc = getLargestConnectedComponent();
-		Set<Integer> vs = new TreeSet(vertexSet());
-		for(Integer v : vs)
-			if(!lcc.contains(v))
-				removeVertex(v);
+		MyCSRGraph c = compact();
+		boolean[] keep = c.largestComponent(vertexSet());
+		List<Integer> drop = new ArrayList<Integer>();
+		for(int i = 0; i < keep.length; i++)
+			if(!keep[i])
+				drop.add(c.ids[i]);
+		if(drop.size() > 0)
+			removeAllVertices(drop);
 	}
 
 	/*
@@ -98,65 +215,44 @@ public class MyGraph extends SimpleGraph implements MyBaseGraph
 	// Read from file
 	public void loadFromTGF(String path)
 	{
-		try
+		MyIntList es = new MyTGFReader(path).edges;
+		int n = MyMemory.countVertices(es);
+		MyMemory.report(path, n, es.size/2, MyMemory.jgraphtBytes(n, es.size/2, false));
+		
+		int last_sec = 0;
+		for(int i = 0; i < es.size; i += 2)
 		{
-			BufferedReader in = new BufferedReader(new FileReader(path));
-			char[] buf = new char[102400];
-	        int numRead=0;
-	        String lineBuffer = new String("");
-	        
-			int last_sec = 0;
-			while((numRead=in.read(buf)) != -1)
+			Integer v1 = es.items[i];
+			Integer v2 = es.items[i+1];
+			this.addVertex(v1);
+			if(v1.equals(v2))
+				continue;
+			this.addVertex(v2);
+			this.addEdge(v1, v2);
+			
+			if(Deanon.DEBUG)
 			{
-				lineBuffer = lineBuffer + (String.valueOf(buf, 0, numRead));
-	            buf = new char[102400];
-	            
-	            lineBuffer.replace("\r", "");
-	            String[] lines = lineBuffer.substring(0, lineBuffer.lastIndexOf("\n")).split("\n");
-	            lineBuffer = lineBuffer.substring(lineBuffer.lastIndexOf("\n")+1);
-	            
-	            for(String s : lines)
-	            {
-					if(s.charAt(0) == '#')
-						continue;
-					String[] vs = s.split("\\s+");
-					Integer v1 = Integer.parseInt(vs[0]);
-					Integer v2 = Integer.parseInt(vs[1]);
-					this.addVertex(v1);
-					if(v1.equals(v2))
-						continue;
-					this.addVertex(v2);
-					this.addEdge(v1, v2);
-					
-					// Limit: at most 1.1M nodes
-					if(this.vertexSet().size() >= 600000)
-						break;
-					
-					if(Deanon.DEBUG)
-					{
-						Calendar cal = Calendar.getInstance();
-						if(cal.get(Calendar.SECOND) % 5 == 0 && cal.get(Calendar.SECOND) != last_sec)
-						{
-							System.out.println("\t"+this.vertexSet().size()+" nodes, "+this.edgeSet().size()+" edges");
-							last_sec = cal.get(Calendar.SECOND);
-						}
-					}
-	            }
+				Calendar cal = Calendar.getInstance();
+				if(cal.get(Calendar.SECOND) % 5 == 0 && cal.get(Calendar.SECOND) != last_sec)
+				{
+					System.out.println("\t"+this.vertexSet().size()+" nodes, "+this.edgeSet().size()+" edges");
+					last_sec = cal.get(Calendar.SECOND);
+				}
 			}
-			in.close();
-		} catch (Exception e) { e.printStackTrace(); }
+		}
+		
+		index = MyVertexIndex.of(this.vertexSet());
 	}
 	
 	// Write to file
 	public void writeToTGF(String path)
 	{
-		BufferedWriter out;
 		try
 		{
-			out = new BufferedWriter(new FileWriter(path));
+			MyTGFWriter out = new MyTGFWriter(path);
 			Set<MyEdge> es = this.edgeSet();
 			for(MyEdge e : es)
-				out.write(e.source().toString()+" "+e.target().toString()+"\n");
+				out.edge(e.source(), e.target());
 			out.close();
 		} catch (Exception e) { e.printStackTrace(); }
 	}
@@ -164,62 +260,29 @@ public class MyGraph extends SimpleGraph implements MyBaseGraph
 	// Export subnetwork
 	public MyGraph export(int export_size)
 	{
-		// Get starting node
-		Set<Integer> vs = this.vertexSet();
-		Integer start_v = 0;
-		
-		int size = vs.size();
-		int item = new Random().nextInt(size);
-		int i = 0;
-		for(Integer v : vs)
+		// BFS on the snapshot, then the induced subgraph is emitted in one pass
+		MyCSRGraph c = compact();
+		MyIntList bfs = c.exportBFS(export_size);
+		boolean[] keep = new boolean[c.ids.length];
+		MyGraph sg = new MyGraph();
+		for(int i = 0; i < bfs.size; i++)
 		{
-		    if (i == item)
-		    	start_v = v;
-		    i = i + 1;
+			keep[bfs.items[i]] = true;
+			sg.addVertex(c.ids[bfs.items[i]]);
 		}
-
-		Queue<Integer> queue = new LinkedList();
-		MyGraph sg = new MyGraph();
-		Map<Integer, Object> all_nbrs = new HashMap<Integer, Object>();
-		queue.offer(start_v);
-		sg.addVertex(start_v);
-		all_nbrs.put(start_v, this.neighborsOf(start_v));
 		
-		// Extract nodes
-		while(queue.size() > 0 && export_size > 0)
+		// Edges are added from their endpoint discovered first (processed vertices are unmarked)
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int i = 0; i < bfs.size; i++)
 		{
-			Integer v1 = queue.poll();
-			Set<Integer> nbrs = this.neighborsOf(v1);
-			for(Integer v2 : nbrs)
-			{
-				if(!sg.vertexSet().contains(v2))
-				{
-					sg.addVertex(v2);
-					all_nbrs.put(v2, this.neighborsOf(v2));
-					queue.offer(v2);
-					export_size--;
-				}
-				
-				if(export_size < 0)
-				{
-					queue.clear();
-					break;
-				}
-			}
+			int v1 = bfs.items[i];
+			c.neighborsAt(v1, nbrs);
+			for(int k = nbrs.from; k < nbrs.to; k++)
+				if(keep[nbrs.array[k]])
+					sg.addEdge(c.ids[v1], c.ids[nbrs.array[k]]);
+			keep[v1] = false;
 		}
 		
-		// Extract edges
-		Set<Integer> sg_vs = sg.vertexSet();
-		for(Integer v1 : sg_vs)
-	    {
-	        Set<Integer> nbrs = (Set<Integer>)all_nbrs.get(v1);
-	        for(Integer v2 : nbrs)
-			{
-				if(sg.vertexSet().contains(v2) && !v1.equals(v2))// && sg.getEdge(v1, v2) == null && sg.getEdge(v2, v1) == null)
-					sg.addEdge(v1, v2);
-			}
-	    }
-		
 		return sg;
 	}
 	
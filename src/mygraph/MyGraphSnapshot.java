@@ -0,0 +1,283 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Binary snapshot of a TGF file (stored next to it, with .bin instead of .tgf or .tgf.gz)
+//   - header: magic, version, flags, |V|, size and modification time of the TGF
+//   - vertex ids (sorted), then the dense indexes in order of first appearance in the TGF
+//   - CSR arrays with long offsets (undirected union, plus out and in rows if directed)
+// Loading maps the file and copies the arrays in bulk, no parsing involved.
+public class MyGraphSnapshot
+{
+	public static final int MAGIC = 0x53414c47; // "SALG"
+	public static final int VERSION = 1;
+	private static final int FLAG_DIRECTED = 1;
+	private static final int HEADER_SIZE = 48;
+	// Largest region mapped at once
+	private static final int MAP_CHUNK = 1 << 28;
+
+	// Snapshot path belonging to a TGF file
+	public static String pathOf(String tgf_path)
+	{
+		if(tgf_path.endsWith(".gz"))
+			tgf_path = tgf_path.substring(0, tgf_path.length()-3);
+		if(tgf_path.endsWith(".tgf"))
+			return tgf_path.substring(0, tgf_path.length()-4)+".bin";
+		return tgf_path+".bin";
+	}
+
+	// Is there a snapshot made from the current version of the TGF file?
+	public static boolean isUpToDate(String tgf_path)
+	{
+		File tgf = new File(MyTGFReader.locate(tgf_path));
+		File bin = new File(pathOf(tgf_path));
+		if(!tgf.exists() || !bin.exists() || bin.length() < HEADER_SIZE)
+			return false;
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(bin)));
+			int magic = in.readInt();
+			int version = in.readInt();
+			in.readInt();
+			in.readInt();
+			long tgf_size = in.readLong();
+			long tgf_time = in.readLong();
+			in.close();
+			return magic == MAGIC && version == VERSION && tgf_size == tgf.length() && tgf_time == tgf.lastModified();
+		} catch (Exception e) { e.printStackTrace(); }
+		return false;
+	}
+
+	// Create the snapshot of a graph just written to a TGF file by writeToTGF
+	//   - built from the graph in memory, only the size and modification time are read from the file
+	//   - edgeSet() lists the edges in the order writeToTGF writes them, so the snapshot has the same
+	//     vertices (isolated ones are not in the TGF) in the same order as parsing the file would give
+	public static void write(MyBaseGraph src, String tgf_path)
+	{
+		boolean directed = src instanceof MyDirectedBaseGraph;
+		MyIntList es = new MyIntList(2*src.edgeSet().size());
+		for(Object o : src.edgeSet())
+		{
+			MyEdge e = (MyEdge)o;
+			es.add(e.source());
+			es.add(e.target());
+		}
+		MyCSRGraph g = directed ? new MyDirectedCSRGraph() : new MyCSRGraph();
+		g.build(new MyIntList(0), es);
+
+		// Order of first appearance (as the vertices are added by MyGraph.loadFromTGF)
+		int n = g.ids.length;
+		int[] order = new int[n];
+		boolean[] seen = new boolean[n];
+		int c = 0;
+		for(int i = 0; i < es.size; i++)
+		{
+			if(i % 2 == 1 && es.items[i] == es.items[i-1])
+				continue;
+			int ix = g.index.indexOf(es.items[i]);
+			if(!seen[ix])
+			{
+				seen[ix] = true;
+				order[c++] = ix;
+			}
+		}
+		es = null;
+
+		File tgf = new File(MyTGFReader.locate(tgf_path));
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathOf(tgf_path)), 1 << 20));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(directed ? FLAG_DIRECTED : 0);
+			out.writeInt(n);
+			out.writeLong(tgf.length());
+			out.writeLong(tgf.lastModified());
+			out.writeLong(g.targets.length);
+			out.writeLong(directed ? ((MyDirectedCSRGraph)g).out_targets.length : 0);
+			writeInts(out, g.ids);
+			writeInts(out, order);
+			writeRows(out, g.offsets, g.targets);
+			if(directed)
+			{
+				MyDirectedCSRGraph dg = (MyDirectedCSRGraph)g;
+				writeRows(out, dg.out_offsets, dg.out_targets);
+				writeRows(out, dg.in_offsets, dg.in_targets);
+			}
+			out.close();
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a) throws IOException
+	{
+		for(int i = 0; i < a.length; i++)
+			out.writeInt(a[i]);
+	}
+
+	private static void writeRows(DataOutputStream out, int[] offs, int[] tars) throws IOException
+	{
+		for(int i = 0; i < offs.length; i++)
+			out.writeLong(offs[i]);
+		writeInts(out, tars);
+	}
+
+	// Load a snapshot (compact: as CSR graph, otherwise as MyGraph / MyDirectedGraph)
+	public static MyBaseGraph load(String tgf_path, boolean compact)
+	{
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(pathOf(tgf_path), "r");
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+			{
+				file.close();
+				throw new IOException("not a graph snapshot (or unsupported version): "+pathOf(tgf_path));
+			}
+			boolean directed = (header.getInt(8) & FLAG_DIRECTED) != 0;
+			int n = header.getInt(12);
+			long m = header.getLong(32);
+			long m_dir = header.getLong(40);
+			long edges = directed ? m_dir : m/2;
+			long bytes = MyMemory.csrBytes(n, edges, directed);
+			if(!compact)
+				bytes += MyMemory.jgraphtBytes(n, edges, directed);
+			MyMemory.report(pathOf(tgf_path), n, edges, bytes);
+
+			long pos = HEADER_SIZE;
+			MyCSRGraph g = directed ? new MyDirectedCSRGraph() : new MyCSRGraph();
+			g.ids = readInts(channel, pos, n);
+			pos += 4L*n;
+			int[] order = readInts(channel, pos, n);
+			pos += 4L*n;
+			g.offsets = readOffsets(channel, pos, n+1);
+			pos += 8L*(n+1);
+			g.targets = readInts(channel, pos, MyIntList.checkedSize(m));
+			pos += 4L*m;
+			if(directed)
+			{
+				MyDirectedCSRGraph dg = (MyDirectedCSRGraph)g;
+				dg.out_offsets = readOffsets(channel, pos, n+1);
+				pos += 8L*(n+1);
+				dg.out_targets = readInts(channel, pos, MyIntList.checkedSize(m_dir));
+				pos += 4L*m_dir;
+				dg.in_offsets = readOffsets(channel, pos, n+1);
+				pos += 8L*(n+1);
+				dg.in_targets = readInts(channel, pos, MyIntList.checkedSize(m_dir));
+			}
+			g.index = new MyVertexIndex(g.ids);
+			file.close();
+
+			if(compact)
+				return g;
+			return directed ? toDirectedGraph((MyDirectedCSRGraph)g, order) : toGraph(g, order);
+		} catch (Exception e) { e.printStackTrace(); }
+		return null;
+	}
+
+	// Load a snapshot with the rows left in the mapped file (undirected graphs only,
+	// directed ones are loaded as CSR graphs on the heap)
+	public static MyBaseGraph loadOffHeap(String tgf_path)
+	{
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(pathOf(tgf_path), "r");
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+			{
+				file.close();
+				throw new IOException("not a graph snapshot (or unsupported version): "+pathOf(tgf_path));
+			}
+			if((header.getInt(8) & FLAG_DIRECTED) != 0)
+			{
+				file.close();
+				return load(tgf_path, true);
+			}
+			int n = header.getInt(12);
+			long m = header.getLong(32);
+			MyMemory.report(pathOf(tgf_path)+" (off-heap)", n, m/2, 8L*n);
+			
+			long pos = HEADER_SIZE;
+			int[] ids = readInts(channel, pos, n);
+			pos += 8L*n; // ids and order
+			MyOffHeapArray offsets = MyOffHeapArray.map(channel, pos, 8L*(n+1));
+			pos += 8L*(n+1);
+			MyOffHeapArray targets = MyOffHeapArray.map(channel, pos, 4L*m);
+			file.close();
+			
+			return new MyOffHeapCSRGraph(ids, offsets, targets, m);
+		} catch (Exception e) { e.printStackTrace(); }
+		return null;
+	}
+
+	// Mutable copies, with the vertices added in the same order as by loadFromTGF
+	private static MyGraph toGraph(MyCSRGraph c, int[] order)
+	{
+		MyGraph g = new MyGraph();
+		for(int i = 0; i < order.length; i++)
+			g.addVertex(c.ids[order[i]]);
+		for(int i = 0; i < order.length; i++)
+		{
+			int v = order[i];
+			for(int k = c.offsets[v]; k < c.offsets[v+1]; k++)
+				if(v < c.targets[k])
+					g.addEdge(c.ids[v], c.ids[c.targets[k]]);
+		}
+		g.index = c.index;
+		return g;
+	}
+
+	private static MyDirectedGraph toDirectedGraph(MyDirectedCSRGraph c, int[] order)
+	{
+		MyDirectedGraph g = new MyDirectedGraph();
+		for(int i = 0; i < order.length; i++)
+			g.addVertex(c.ids[order[i]]);
+		for(int i = 0; i < order.length; i++)
+		{
+			int v = order[i];
+			for(int k = c.out_offsets[v]; k < c.out_offsets[v+1]; k++)
+				g.addEdge(c.ids[v], c.ids[c.out_targets[k]]);
+		}
+		g.index = c.index;
+		return g;
+	}
+
+	private static int[] readInts(FileChannel channel, long pos, int count) throws IOException
+	{
+		int[] a = new int[count];
+		for(int from = 0; from < count; from += MAP_CHUNK/4)
+		{
+			int len = Math.min(MAP_CHUNK/4, count - from);
+			channel.map(FileChannel.MapMode.READ_ONLY, pos + 4L*from, 4L*len).asIntBuffer().get(a, from, len);
+		}
+		return a;
+	}
+
+	// Offsets are stored as longs, kept as ints in memory
+	private static int[] readOffsets(FileChannel channel, long pos, int count) throws IOException
+	{
+		long[] a = new long[count];
+		for(int from = 0; from < count; from += MAP_CHUNK/8)
+		{
+			int len = Math.min(MAP_CHUNK/8, count - from);
+			channel.map(FileChannel.MapMode.READ_ONLY, pos + 8L*from, 8L*len).asLongBuffer().get(a, from, len);
+		}
+		int[] offs = new int[count];
+		for(int i = 0; i < count; i++)
+			offs[i] = (int)a[i];
+		return offs;
+	}
+}
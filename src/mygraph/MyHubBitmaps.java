@@ -0,0 +1,51 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+
+// Neighbor rows of the hub vertices (row length >= HUB_DEGREE) as bitmaps
+//   - edge checks against hubs become bitmap lookups,
+//     the rows of all other vertices stay sorted arrays (binary search)
+public class MyHubBitmaps
+{
+	// Shortest row stored as bitmap
+	public static int HUB_DEGREE = 4096;
+
+	private final int[] hubs;
+	private final MyBitmap[] rows;
+
+	public MyHubBitmaps(MyCSRGraph g)
+	{
+		int n = g.vertexIndex().size();
+		MyIntList hs = new MyIntList();
+		for(int i = 0; i < n; i++)
+			if(g.rowLength(i) >= HUB_DEGREE)
+				hs.add(i);
+		hubs = Arrays.copyOf(hs.items, hs.size);
+		rows = new MyBitmap[hubs.length];
+		MyIntSlice nbrs = new MyIntSlice();
+		for(int h = 0; h < hubs.length; h++)
+			rows[h] = new MyBitmap(g.neighborsAt(hubs[h], nbrs));
+	}
+
+	// Bitmap of a vertex (null if it is not a hub)
+	public MyBitmap rowOf(int ix)
+	{
+		int h = Arrays.binarySearch(hubs, ix);
+		return h < 0 ? null : rows[h];
+	}
+
+	public int size()
+	{
+		return hubs.length;
+	}
+}
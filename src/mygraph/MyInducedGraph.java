@@ -0,0 +1,143 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+// Read-only view of the subgraph induced by a subset of the vertices of another graph
+//   - nothing is copied: the rows of the parent are filtered and renumbered on the fly
+//   - the view has its own dense indexes (in the order of the parent's indexes)
+//   - edges are undirected (the union of in and out neighbors for directed parents)
+//   - the parent must not be modified while the view is in use
+public class MyInducedGraph extends MyCSRGraph
+{
+	protected static final String READ_ONLY = "MyInducedGraph is a read-only view";
+
+	protected MyBaseGraph parent;
+	// View index of each parent index (-1 if not in the view), and the other way round
+	protected int[] remap;
+	protected int[] parent_ixs;
+	private long size = -1;
+
+	// View of the given vertices (the ones missing from g are ignored)
+	public MyInducedGraph(MyBaseGraph g, Collection<Integer> vertices)
+	{
+		this(g, keepOf(g, vertices));
+	}
+
+	// View of the vertices marked by their parent indexes
+	public MyInducedGraph(MyBaseGraph g, boolean[] keep)
+	{
+		parent = g;
+		MyVertexIndex pix = g.vertexIndex();
+		remap = remapKept(keep);
+		int n = remap[remap.length-1];
+		parent_ixs = new int[n];
+		ids = new int[n];
+		for(int i = 0; i < keep.length; i++)
+			if(keep[i])
+			{
+				parent_ixs[remap[i]] = i;
+				ids[remap[i]] = pix.idOf(i);
+			}
+		index = new MyVertexIndex(ids);
+		offsets = null;
+		targets = null;
+	}
+
+	private static boolean[] keepOf(MyBaseGraph g, Collection<Integer> vertices)
+	{
+		MyVertexIndex pix = g.vertexIndex();
+		boolean[] keep = new boolean[pix.size()];
+		for(Integer v : vertices)
+		{
+			int ix = pix.indexOf(v);
+			if(ix >= 0)
+				keep[ix] = true;
+		}
+		return keep;
+	}
+
+	/*
+	 * Basic functions
+	 * */
+	public int degreeAt(int ix)
+	{
+		MyIntSlice nbrs = parent.neighborsAt(parent_ixs[ix], new MyIntSlice());
+		int deg = 0;
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			if(remap[nbrs.array[k]] >= 0)
+				deg++;
+		return deg;
+	}
+
+	// Rows are filtered into the buffer of the slice (in place if the parent decoded them there)
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice)
+	{
+		parent.neighborsAt(parent_ixs[ix], slice);
+		int[] src = slice.array;
+		int from = slice.from, to = slice.to;
+		int[] out = slice.reserve(to - from);
+		int c = 0;
+		for(int k = from; k < to; k++)
+			if(remap[src[k]] >= 0)
+				out[c++] = remap[src[k]];
+		return slice.set(out, 0, c);
+	}
+
+	public void forEachNeighbor(int ix, IntConsumer action)
+	{
+		MyIntSlice nbrs = neighborsAt(ix, new MyIntSlice());
+		for(int k = nbrs.from; k < nbrs.to; k++)
+			action.accept(nbrs.array[k]);
+	}
+
+	// Counted on first use
+	protected long adjacencySize()
+	{
+		if(size < 0)
+		{
+			long s = 0;
+			MyIntSlice nbrs = new MyIntSlice();
+			for(int i = 0; i < ids.length; i++)
+				s += neighborsAt(i, nbrs).size();
+			size = s;
+		}
+		return size;
+	}
+
+	// Exports are copied to the heap
+	public MyCSRGraph export(int export_size)
+	{
+		return inducedCopy(exportKeep(export_size));
+	}
+
+	protected void induce(boolean[] keep)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	protected MyCSRGraph shallowCopy()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	public void retainLargestConnectedComponent()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	public void loadFromTGF(String path)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+}
@@ -0,0 +1,79 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+
+// Growable list of primitive ints (no boxing)
+public class MyIntList
+{
+	// Largest array size the JVMs can allocate
+	public static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+	
+	public int[] items;
+	public int size;
+	
+	public MyIntList()
+	{
+		this(16);
+	}
+	
+	public MyIntList(int capacity)
+	{
+		items = new int[Math.max(capacity, 1)];
+		size = 0;
+	}
+	
+	public void add(int v)
+	{
+		if(size == items.length)
+			grow(size+1L);
+		items[size++] = v;
+	}
+	
+	public void addAll(MyIntList l)
+	{
+		if(size + (long)l.size > items.length)
+			grow(size + (long)l.size);
+		System.arraycopy(l.items, 0, items, size, l.size);
+		size += l.size;
+	}
+	
+	// Double the capacity (at least to min_capacity, at most to MAX_SIZE)
+	private void grow(long min_capacity)
+	{
+		checkedSize(min_capacity);
+		items = Arrays.copyOf(items, (int)Math.min(MAX_SIZE, Math.max(2L*items.length, min_capacity)));
+	}
+	
+	// Fail clearly instead of overflowing when an array would be too large
+	public static int checkedSize(long size)
+	{
+		if(size > MAX_SIZE)
+			throw new IllegalStateException("too many items for a single array: "+size);
+		return (int)size;
+	}
+	
+	public int get(int i)
+	{
+		return items[i];
+	}
+	
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	public int[] toArray()
+	{
+		return Arrays.copyOf(items, size);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+
+// Sorted view on array[from..to) (e.g., the neighbor indexes of a vertex)
+//   - slices can be reused between calls, so iteration does not allocate
+//   - the underlying array is shared with the graph, do not modify it
+//   - off-heap and compressed rows are copied into a buffer owned by the slice (grown as needed)
+public class MyIntSlice
+{
+	public int[] array;
+	public int from, to;
+	private int[] buffer = null;
+	
+	public MyIntSlice()
+	{
+		array = new int[0];
+		from = 0;
+		to = 0;
+	}
+	
+	public MyIntSlice set(int[] a, int f, int t)
+	{
+		array = a;
+		from = f;
+		to = t;
+		return this;
+	}
+	
+	// Copy ints [from, from+len) of an off-heap array, and view them
+	public MyIntSlice copy(MyOffHeapArray a, long from, int len)
+	{
+		int[] buf = reserve(len);
+		for(int i = 0; i < len; i++)
+			buf[i] = a.getInt(from + i);
+		return set(buf, 0, len);
+	}
+	
+	// Buffer of the slice with room for len ints (for rows decoded into it)
+	int[] reserve(int len)
+	{
+		if(buffer == null || buffer.length < len)
+			buffer = new int[Math.max(len, buffer == null ? 16 : 2*buffer.length)];
+		return buffer;
+	}
+	
+	public int size()
+	{
+		return to - from;
+	}
+	
+	public int get(int i)
+	{
+		return array[from + i];
+	}
+	
+	public boolean contains(int v)
+	{
+		return Arrays.binarySearch(array, from, to, v) >= 0;
+	}
+}
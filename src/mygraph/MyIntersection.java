@@ -0,0 +1,127 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+// Size of the intersection of two sorted, duplicate-free int ranges (e.g., neighbor slices)
+//   - similar sizes: linear merge
+//   - one range much longer: galloping (exponential then binary search) from the last position
+//   - extremely skewed: plain binary search of each short item in the rest of the long range
+public class MyIntersection
+{
+	// Length ratios where galloping and binary search take over from merging
+	public static int GALLOP_RATIO = 8;
+	public static int SEARCH_RATIO = 256;
+
+	public static int count(MyIntSlice a, MyIntSlice b)
+	{
+		return count(a.array, a.from, a.to, b.array, b.from, b.to);
+	}
+
+	public static int count(int[] a, int[] b)
+	{
+		return count(a, 0, a.length, b, 0, b.length);
+	}
+
+	public static int count(int[] a, int a_from, int a_to, int[] b, int b_from, int b_to)
+	{
+		int na = a_to - a_from, nb = b_to - b_from;
+		if(na == 0 || nb == 0)
+			return 0;
+		if(na > nb)
+			return count(b, b_from, b_to, a, a_from, a_to);
+
+		// Disjoint ranges
+		if(a[a_to-1] < b[b_from] || b[b_to-1] < a[a_from])
+			return 0;
+
+		if(nb / na >= SEARCH_RATIO)
+			return search(a, a_from, a_to, b, b_from, b_to);
+		if(nb / na >= GALLOP_RATIO)
+			return gallop(a, a_from, a_to, b, b_from, b_to);
+		return merge(a, a_from, a_to, b, b_from, b_to);
+	}
+
+	private static int merge(int[] a, int i, int a_to, int[] b, int j, int b_to)
+	{
+		int common = 0;
+		while(i < a_to && j < b_to)
+		{
+			if(a[i] < b[j])
+				i++;
+			else if(a[i] > b[j])
+				j++;
+			else
+			{
+				common++;
+				i++;
+				j++;
+			}
+		}
+		return common;
+	}
+
+	// a is the short one
+	private static int gallop(int[] a, int i, int a_to, int[] b, int j, int b_to)
+	{
+		int common = 0;
+		for(; i < a_to && j < b_to; i++)
+		{
+			int v = a[i];
+			if(b[j] < v)
+			{
+				// Double the step until passing v, then search the last step
+				int lo = j, step = 1;
+				while(lo + step < b_to && b[lo + step] < v)
+				{
+					lo += step;
+					step <<= 1;
+				}
+				j = lowerBound(b, lo + 1, Math.min(lo + step + 1, b_to), v);
+			}
+			if(j < b_to && b[j] == v)
+			{
+				common++;
+				j++;
+			}
+		}
+		return common;
+	}
+
+	// a is the short one
+	private static int search(int[] a, int i, int a_to, int[] b, int j, int b_to)
+	{
+		int common = 0;
+		for(; i < a_to && j < b_to; i++)
+		{
+			j = lowerBound(b, j, b_to, a[i]);
+			if(j < b_to && b[j] == a[i])
+			{
+				common++;
+				j++;
+			}
+		}
+		return common;
+	}
+
+	// First position in [from, to) with a value >= v
+	private static int lowerBound(int[] b, int from, int to, int v)
+	{
+		while(from < to)
+		{
+			int mid = (from + to) >>> 1;
+			if(b[mid] < v)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Rough memory needs of the graph representations, reported before building a graph
+//   - jgrapht: ~125 bytes per edge and per vertex (~175 per vertex if directed), measured
+//   - CSR: ids, offsets, lookup table and both directions of each edge as ints
+public class MyMemory
+{
+	public static long jgraphtBytes(long n, long m, boolean directed)
+	{
+		return (directed ? 175L : 125L)*n + 125L*m;
+	}
+	
+	public static long csrBytes(long n, long m, boolean directed)
+	{
+		long bytes = 4L*(n+1) + 4L*n + 16L*n + 8L*m;
+		if(directed)
+			bytes += 8L*(n+1) + 8L*m;
+		return bytes;
+	}
+	
+	// Heap that can still be allocated
+	public static long freeHeap()
+	{
+		Runtime rt = Runtime.getRuntime();
+		return rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+	}
+	
+	// Print the requirements, and a warning if they are above the free heap
+	public static void report(String what, long n, long m, long bytes)
+	{
+		System.out.println("\t"+what+": "+n+" nodes, up to "+m+" edges, needs ~"+(bytes >> 20)+" MB (free heap: "+(freeHeap() >> 20)+" MB)");
+		if(bytes > freeHeap())
+			System.out.println("\tWarning: the graph probably does not fit into the heap (raise -Xmx or use the compact representation)");
+	}
+	
+	// Number of distinct vertices in (source, target) pairs
+	public static int countVertices(MyIntList es)
+	{
+		if(es.size == 0)
+			return 0;
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for(int i = 0; i < es.size; i++)
+		{
+			min = Math.min(min, es.items[i]);
+			max = Math.max(max, es.items[i]);
+		}
+		
+		// Bitset if the id range is not much larger than the list (and fits in int bit indexes), sorting otherwise
+		long range = (long)max - min + 1;
+		if(range <= 32L*es.size && range <= Integer.MAX_VALUE)
+		{
+			BitSet seen = new BitSet((int)range);
+			for(int i = 0; i < es.size; i++)
+			{
+				long off = (long)es.items[i] - min;
+				seen.set((int)off);
+			}
+			return seen.cardinality();
+		}
+		int[] vs = Arrays.copyOf(es.items, es.size);
+		Arrays.sort(vs);
+		int n = 1;
+		for(int i = 1; i < vs.length; i++)
+			if(vs[i] != vs[i-1])
+				n++;
+		return n;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// Long indexed array of ints or longs outside of the Java heap
+//   - direct buffers (allocated) or read-only mapped file regions
+//   - split into 1GB segments, so it is not limited to 2GB like a single buffer
+public class MyOffHeapArray
+{
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	
+	private final ByteBuffer[] segments;
+	private final long bytes;
+	
+	private MyOffHeapArray(ByteBuffer[] segments, long bytes)
+	{
+		this.segments = segments;
+		this.bytes = bytes;
+	}
+	
+	// Allocate direct memory
+	public static MyOffHeapArray allocate(long bytes)
+	{
+		ByteBuffer[] segments = new ByteBuffer[(int)((bytes + SEGMENT_MASK) >> SEGMENT_BITS)];
+		for(int i = 0; i < segments.length; i++)
+			segments[i] = ByteBuffer.allocateDirect((int)Math.min(SEGMENT_MASK+1, bytes - ((long)i << SEGMENT_BITS))).order(ByteOrder.nativeOrder());
+		return new MyOffHeapArray(segments, bytes);
+	}
+	
+	// Map a region of a file (read-only, big-endian, the pages are managed by the OS)
+	public static MyOffHeapArray map(FileChannel channel, long pos, long bytes) throws IOException
+	{
+		ByteBuffer[] segments = new ByteBuffer[(int)((bytes + SEGMENT_MASK) >> SEGMENT_BITS)];
+		for(int i = 0; i < segments.length; i++)
+		{
+			long from = (long)i << SEGMENT_BITS;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos + from, Math.min(SEGMENT_MASK+1, bytes - from));
+		}
+		return new MyOffHeapArray(segments, bytes);
+	}
+	
+	public long bytes()
+	{
+		return bytes;
+	}
+	
+	public int getInt(long i)
+	{
+		long b = i << 2;
+		return segments[(int)(b >>> SEGMENT_BITS)].getInt((int)(b & SEGMENT_MASK));
+	}
+	
+	public void putInt(long i, int v)
+	{
+		long b = i << 2;
+		segments[(int)(b >>> SEGMENT_BITS)].putInt((int)(b & SEGMENT_MASK), v);
+	}
+	
+	public long getLong(long i)
+	{
+		long b = i << 3;
+		return segments[(int)(b >>> SEGMENT_BITS)].getLong((int)(b & SEGMENT_MASK));
+	}
+	
+	public void putLong(long i, long v)
+	{
+		long b = i << 3;
+		segments[(int)(b >>> SEGMENT_BITS)].putLong((int)(b & SEGMENT_MASK), v);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.function.IntConsumer;
+
+// CSR graph with the rows stored outside of the Java heap (read-only)
+//   - offsets (longs) and targets (ints) live in direct buffers or in a mapped snapshot file
+//   - only the vertex ids and their index stay on the heap
+//   - neighbor slices are copies of the rows (see MyIntSlice.copy)
+public class MyOffHeapCSRGraph extends MyCSRGraph
+{
+	protected static final String READ_ONLY = "MyOffHeapCSRGraph is read-only";
+	
+	protected MyOffHeapArray row_offsets;
+	protected MyOffHeapArray row_targets;
+	protected long size;
+
+	// Move the rows of an on-heap graph to direct buffers
+	public MyOffHeapCSRGraph(MyCSRGraph g)
+	{
+		int n = g.ids.length;
+		ids = g.ids;
+		index = g.index;
+		size = g.targets.length;
+		row_offsets = MyOffHeapArray.allocate(8L*(n+1));
+		for(int i = 0; i <= n; i++)
+			row_offsets.putLong(i, g.offsets[i]);
+		row_targets = MyOffHeapArray.allocate(4L*size);
+		for(int k = 0; k < size; k++)
+			row_targets.putInt(k, g.targets[k]);
+		offsets = null;
+		targets = null;
+	}
+
+	// Use rows that are already off-heap (e.g., mapped from a snapshot)
+	public MyOffHeapCSRGraph(int[] ids, MyOffHeapArray row_offsets, MyOffHeapArray row_targets, long size)
+	{
+		this.ids = ids;
+		this.index = new MyVertexIndex(ids);
+		this.row_offsets = row_offsets;
+		this.row_targets = row_targets;
+		this.size = size;
+		offsets = null;
+		targets = null;
+	}
+
+	/*
+	 * Basic functions
+	 * */
+	public int degreeAt(int ix)
+	{
+		return (int)(row_offsets.getLong(ix+1)-row_offsets.getLong(ix));
+	}
+
+	public MyIntSlice neighborsAt(int ix, MyIntSlice slice)
+	{
+		long from = row_offsets.getLong(ix);
+		return slice.copy(row_targets, from, (int)(row_offsets.getLong(ix+1)-from));
+	}
+
+	public void forEachNeighbor(int ix, IntConsumer action)
+	{
+		long to = row_offsets.getLong(ix+1);
+		for(long k = row_offsets.getLong(ix); k < to; k++)
+			action.accept(row_targets.getInt(k));
+	}
+
+	protected long adjacencySize()
+	{
+		return size;
+	}
+
+	// Changing the layout would need new off-heap arrays, export or copy on the heap instead
+	protected void induce(boolean[] keep)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	protected MyCSRGraph shallowCopy()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	public void retainLargestConnectedComponent()
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	// Exports are copied to the heap
+	public MyCSRGraph export(int export_size)
+	{
+		return inducedCopy(exportKeep(export_size));
+	}
+
+	public void loadFromTGF(String path)
+	{
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+}
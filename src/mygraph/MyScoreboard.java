@@ -0,0 +1,152 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Random;
+
+// Scores of dense vertex indexes, reused from scoring to scoring
+//   - scores are summed in a dense array (no boxing, no allocation once it is large enough)
+//   - touched indexes are listed in the order of their first score, clearing resets only those
+public class MyScoreboard
+{
+	private double[] scores = new double[0];
+	private boolean[] marked = new boolean[0];
+	private final MyIntList touched = new MyIntList();
+
+	// Set by summarize()
+	public double max, second_max, std;
+	public int ties, best;
+
+	// One board per thread (scorings running in parallel do not share it)
+	private static final ThreadLocal<MyScoreboard> local = new ThreadLocal<MyScoreboard>()
+	{
+		protected MyScoreboard initialValue()
+		{
+			return new MyScoreboard();
+		}
+	};
+
+	// The cleared board of the current thread for indexes below n (valid until its next use in the thread)
+	public static MyScoreboard ofThread(int n)
+	{
+		MyScoreboard board = local.get();
+		board.reset(n);
+		return board;
+	}
+
+	// Clear, and make room for indexes below n
+	public void reset(int n)
+	{
+		clear();
+		if(scores.length < n)
+		{
+			scores = new double[n];
+			marked = new boolean[n];
+		}
+	}
+
+	public void clear()
+	{
+		for(int i = 0; i < touched.size; i++)
+		{
+			scores[touched.items[i]] = 0.0;
+			marked[touched.items[i]] = false;
+		}
+		touched.clear();
+	}
+
+	public void add(int ix, double score)
+	{
+		if(!marked[ix])
+		{
+			marked[ix] = true;
+			touched.add(ix);
+		}
+		scores[ix] += score;
+	}
+
+	// Number of touched indexes
+	public int size()
+	{
+		return touched.size;
+	}
+
+	// The i-th touched index, and its score
+	public int indexAt(int i)
+	{
+		return touched.items[i];
+	}
+
+	public double scoreAt(int i)
+	{
+		return scores[touched.items[i]];
+	}
+
+	// Summary of the touched scores in a single pass (Welford's method for the deviation)
+	//   - second_max equals max if the highest score is tied
+	//   - best is the first index with the highest score
+	public void summarize()
+	{
+		max = second_max = Double.NEGATIVE_INFINITY;
+		ties = 0;
+		best = -1;
+		double mean = 0.0, m2 = 0.0;
+		for(int i = 0; i < touched.size; i++)
+		{
+			int ix = touched.items[i];
+			double s = scores[ix];
+			double delta = s - mean;
+			mean += delta / (i+1);
+			m2 += delta * (s - mean);
+			if(s > max)
+			{
+				second_max = max;
+				max = s;
+				ties = 1;
+				best = ix;
+			}
+			else
+			{
+				if(s == max)
+					ties++;
+				if(s > second_max)
+					second_max = s;
+			}
+		}
+		std = touched.size < 2 ? 0.0 : Math.sqrt(m2 / (touched.size-1));
+	}
+
+	// Gap between the two highest scores in standard deviations (0 for less than two scores), after summarize()
+	public double eccentricity()
+	{
+		if(touched.size < 2 || std == 0.0)
+			return 0.0;
+		return (max-second_max)/std;
+	}
+
+	// Index with the best score if it passes the eccentricity check against theta (-1 otherwise)
+	//   - with theta > 0 tied best scores never pass, with theta <= 0 one of them is picked at random
+	public int pick(double theta)
+	{
+		if(touched.size == 0)
+			return -1;
+		summarize();
+		if(touched.size > 1 && eccentricity() < theta)
+			return -1;
+		if(ties == 1)
+			return best;
+		int r = new Random().nextInt(ties);
+		for(int i = 0; i < touched.size; i++)
+			if(scores[touched.items[i]] == max && r-- == 0)
+				return touched.items[i];
+		return -1;
+	}
+}
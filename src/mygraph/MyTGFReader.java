@@ -0,0 +1,240 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+
+// Reads TGF edge lists into primitive arrays
+//   - the file is memory mapped and cut into newline aligned chunks, parsed in parallel
+//   - gzipped files (.gz, also found for a missing .tgf path) are streamed block by block
+//   - lines starting with '#' are comments
+//   - "v v" self-loops only register the vertex
+public class MyTGFReader
+{
+	// Number of parser threads
+	public static int THREADS = Runtime.getRuntime().availableProcessors();
+	// Chunk size limits (a single mapping can not exceed 2GB)
+	private static final long MIN_CHUNK = 1L << 20;
+	private static final long MAX_CHUNK = 1L << 30;
+	// Block size of the decompressed stream
+	private static final int GZIP_BLOCK = 1 << 20;
+
+	// Endpoints of the lines as (source, target) pairs in file order, self-loops included
+	public MyIntList edges = new MyIntList();
+
+	public MyTGFReader(String path)
+	{
+		path = locate(path);
+		if(path.endsWith(".gz"))
+		{
+			try
+			{
+				edges = parseGzip(path);
+			} catch (Exception e) { e.printStackTrace(); }
+			return;
+		}
+
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(path, "r");
+			final FileChannel channel = file.getChannel();
+			final long[] bounds = split(channel, channel.size());
+			int chunks = bounds.length-1;
+
+			if(chunks == 1)
+				edges = parse(channel, bounds[0], bounds[1]);
+			else
+			{
+				// Parse chunks in parallel, collect them in file order
+				ExecutorService pool = Executors.newFixedThreadPool(Math.min(THREADS, chunks));
+				List<Future<MyIntList>> parts = new ArrayList<Future<MyIntList>>();
+				for(int i = 0; i < chunks; i++)
+				{
+					final long from = bounds[i], to = bounds[i+1];
+					parts.add(pool.submit(new Callable<MyIntList>()
+					{
+						public MyIntList call() throws IOException
+						{
+							return parse(channel, from, to);
+						}
+					}));
+				}
+				pool.shutdown();
+
+				List<MyIntList> lists = new ArrayList<MyIntList>();
+				long total = 0;
+				for(Future<MyIntList> part : parts)
+				{
+					MyIntList l = part.get();
+					lists.add(l);
+					total += l.size;
+				}
+				edges = new MyIntList(MyIntList.checkedSize(total));
+				for(MyIntList l : lists)
+					edges.addAll(l);
+			}
+			file.close();
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	// The given path, or its gzipped version if only that one exists
+	public static String locate(String path)
+	{
+		if(!new File(path).exists() && new File(path+".gz").exists())
+			return path+".gz";
+		return path;
+	}
+
+	// Does the file (or its gzipped version) exist?
+	public static boolean exists(String path)
+	{
+		return new File(locate(path)).exists();
+	}
+
+	// Chunk boundaries, each one at the start of a line
+	private static long[] split(FileChannel channel, long size) throws IOException
+	{
+		int chunks = (int)Math.max(1, Math.min(THREADS, size / MIN_CHUNK));
+		while(size / chunks > MAX_CHUNK)
+			chunks++;
+
+		long[] bounds = new long[chunks+1];
+		bounds[chunks] = size;
+		for(int i = 1; i < chunks; i++)
+		{
+			long b = Math.max(bounds[i-1], size / chunks * i);
+			bounds[i] = nextLine(channel, b, size);
+		}
+		return bounds;
+	}
+
+	// First line start at or after pos
+	private static long nextLine(FileChannel channel, long pos, long size) throws IOException
+	{
+		if(pos == 0)
+			return 0;
+		long p = pos-1;
+		while(p < size)
+		{
+			int len = (int)Math.min(1 << 16, size - p);
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, p, len);
+			for(int i = 0; i < len; i++)
+				if(buf.get(i) == '\n')
+					return p + i + 1;
+			p += len;
+		}
+		return size;
+	}
+
+	// Parse the lines of [from, to)
+	private static MyIntList parse(FileChannel channel, long from, long to) throws IOException
+	{
+		int len = (int)(to - from);
+		MyIntList es = new MyIntList(Math.max(16, len / 6));
+		if(len == 0)
+			return es;
+		parse(channel.map(FileChannel.MapMode.READ_ONLY, from, len), len, es);
+		return es;
+	}
+
+	// Decompress and parse complete lines block by block (the rest of a block is carried over)
+	private static MyIntList parseGzip(String path) throws IOException
+	{
+		InputStream in = new GZIPInputStream(new FileInputStream(path), 1 << 16);
+		MyIntList es = new MyIntList();
+		byte[] block = new byte[GZIP_BLOCK];
+		int len = 0, r;
+		while((r = in.read(block, len, block.length - len)) >= 0)
+		{
+			len += r;
+			if(len < block.length)
+				continue;
+			int end = len;
+			while(end > 0 && block[end-1] != '\n')
+				end--;
+			// A single line longer than the block
+			if(end == 0)
+			{
+				block = Arrays.copyOf(block, block.length * 2);
+				continue;
+			}
+			parse(ByteBuffer.wrap(block, 0, end), end, es);
+			System.arraycopy(block, end, block, 0, len - end);
+			len -= end;
+		}
+		parse(ByteBuffer.wrap(block, 0, len), len, es);
+		in.close();
+		return es;
+	}
+
+	// Parse the first len bytes of the buffer into es
+	private static void parse(ByteBuffer buf, int len, MyIntList es)
+	{
+		int pos = 0;
+		while(pos < len)
+		{
+			// Comments
+			if(buf.get(pos) == '#')
+			{
+				pos = skipLine(buf, pos, len);
+				continue;
+			}
+
+			// First two integers of the line (anything after them is ignored)
+			int v1 = 0, v2 = 0;
+			boolean ok = true;
+			for(int k = 0; k < 2 && ok; k++)
+			{
+				while(pos < len && (buf.get(pos) == ' ' || buf.get(pos) == '\t' || buf.get(pos) == '\r'))
+					pos++;
+				boolean neg = false;
+				if(pos < len && buf.get(pos) == '-')
+				{
+					neg = true;
+					pos++;
+				}
+				int v = 0, digits = 0;
+				byte c;
+				while(pos < len && (c = buf.get(pos)) >= '0' && c <= '9')
+				{
+					v = v*10 + (c - '0');
+					pos++;
+					digits++;
+				}
+				ok = digits > 0;
+				if(k == 0)
+					v1 = neg ? -v : v;
+				else
+					v2 = neg ? -v : v;
+			}
+			if(ok)
+			{
+				es.add(v1);
+				es.add(v2);
+			}
+			pos = skipLine(buf, pos, len);
+		}
+	}
+
+	// Position after the end of the current line
+	private static int skipLine(ByteBuffer buf, int pos, int len)
+	{
+		while(pos < len && buf.get(pos) != '\n')
+			pos++;
+		return pos+1;
+	}
+}
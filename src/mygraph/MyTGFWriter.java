@@ -0,0 +1,75 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+// Writes TGF edge lists ("v1 v2" lines)
+//   - ints are formatted directly into a byte buffer (no strings per edge)
+//   - paths ending with .gz are gzipped on the fly
+public class MyTGFWriter
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+	// Longest line: two signed ints, a space and a newline
+	private static final int MAX_LINE = 24;
+
+	private final OutputStream out;
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int pos = 0;
+
+	public MyTGFWriter(String path) throws IOException
+	{
+		OutputStream fos = new FileOutputStream(path);
+		out = path.endsWith(".gz") ? new GZIPOutputStream(fos, BUFFER_SIZE) : fos;
+	}
+
+	public void edge(int v1, int v2) throws IOException
+	{
+		if(pos > BUFFER_SIZE - MAX_LINE)
+			flush();
+		writeInt(v1);
+		buf[pos++] = ' ';
+		writeInt(v2);
+		buf[pos++] = '\n';
+	}
+
+	private void writeInt(int v)
+	{
+		long x = v;
+		if(x < 0)
+		{
+			buf[pos++] = '-';
+			x = -x;
+		}
+		int digits = 1;
+		for(long t = x; t >= 10; t /= 10)
+			digits++;
+		for(int i = pos + digits - 1; i >= pos; i--)
+		{
+			buf[i] = (byte)('0' + x % 10);
+			x /= 10;
+		}
+		pos += digits;
+	}
+
+	private void flush() throws IOException
+	{
+		out.write(buf, 0, pos);
+		pos = 0;
+	}
+
+	public void close() throws IOException
+	{
+		flush();
+		out.close();
+	}
+}
@@ -0,0 +1,98 @@
+/*
+* Structural Anonymity Lab
+* ========================
+*
+* Copyright (c) 2016 Gabor Gulyas
+* Licenced under GNU GPLv3 (see licence.txt)
+*
+* URL:      https://github.com/gaborgulyas/salab
+*
+* */
+package mygraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Bidirectional dictionary between vertex ids (as in the TGF files) and dense indexes 0..n-1
+//   - indexes follow the order of the ids, so sorted id lists stay sorted as indexes
+//   - per-vertex state can be stored in arrays of size n, ids are only needed for I/O
+public class MyVertexIndex
+{
+	private final int[] ids;
+	private final int min_id;
+	private final int[] lookup;
+
+	// Build from sorted, unique ids (the array is not copied)
+	public MyVertexIndex(int[] sorted_ids)
+	{
+		ids = sorted_ids;
+		if(ids.length == 0)
+		{
+			min_id = 0;
+			lookup = null;
+			return;
+		}
+
+		// Direct lookup table if the id range is not too sparse
+		min_id = ids[0];
+		long range = (long)ids[ids.length-1] - min_id + 1;
+		if(range <= 4L*ids.length + 1024)
+		{
+			lookup = new int[(int)range];
+			Arrays.fill(lookup, -1);
+			for(int i = 0; i < ids.length; i++)
+				lookup[ids[i]-min_id] = i;
+		}
+		else
+			lookup = null;
+	}
+
+	// Build from an arbitrary collection of vertices
+	public static MyVertexIndex of(Collection<?> vertices)
+	{
+		int[] vs = new int[vertices.size()];
+		int i = 0;
+		for(Object o : vertices)
+			vs[i++] = (Integer)o;
+		Arrays.sort(vs);
+		return new MyVertexIndex(vs);
+	}
+
+	public int size()
+	{
+		return ids.length;
+	}
+
+	// Dense index of a vertex id (-1 if missing)
+	public int indexOf(int id)
+	{
+		if(lookup != null)
+		{
+			long pos = (long)id - min_id;
+			if(pos < 0 || pos >= lookup.length)
+				return -1;
+			return lookup[(int)pos];
+		}
+		int ix = Arrays.binarySearch(ids, id);
+		return ix < 0 ? -1 : ix;
+	}
+
+	public int indexOf(Object v)
+	{
+		if(!(v instanceof Integer))
+			return -1;
+		return indexOf(((Integer)v).intValue());
+	}
+
+	// Vertex id of a dense index
+	public int idOf(int ix)
+	{
+		return ids[ix];
+	}
+
+	// All ids in index order (shared, do not modify)
+	public int[] ids()
+	{
+		return ids;
+	}
+}